@@ -0,0 +1,199 @@
+package it.auties.named.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Reports the size of the bytecode of each method, which decides whether the JIT can inline it
+// As a check, compiles a corpus whose default values are large expressions with the default values copied to every invocation
+// and with the provider methods enabled, then compares the two: the provider methods must make the classes smaller
+// With two class directories or jars, for example the output of a project compiled with and without -Xplugin:"named providers",
+// compares the methods whose size changed, so that the effect on the hottest callers can be checked
+// Run by Checks as the bytecode check or with java -cp target/benchmarks.jar it.auties.named.benchmark.BytecodeSizeReport <before> <after>
+public final class BytecodeSizeReport {
+    private static final Corpus CORPUS = Corpus.DYNAMIC_OPTIONS;
+    private static final int UNITS = 1;
+    private static final int CALLS_PER_UNIT = 100;
+
+    // The default limits of HotSpot: methods bigger than MaxInlineSize are only inlined if they are hot,
+    // methods bigger than FreqInlineSize are never inlined
+    private static final int MAX_INLINE_SIZE = 35;
+    private static final int FREQ_INLINE_SIZE = 325;
+
+    public static void main(String... args) {
+        if(args.length != 2){
+            throw new IllegalArgumentException("Usage: BytecodeSizeReport <before> <after>");
+        }
+
+        printReport(readMethods(Path.of(args[0])), readMethods(Path.of(args[1])));
+    }
+
+    static void run() {
+        var before = compileCorpus();
+        var after = compileCorpus("providers");
+        printReport(before, after);
+        if(sum(after) >= sum(before)){
+            throw new IllegalStateException("The provider methods didn't make the corpus smaller: %s bytes before, %s bytes after".formatted(sum(before), sum(after)));
+        }
+    }
+
+    // Compiles the corpus and returns the size of each method
+    private static Map<String, Integer> compileCorpus(String... pluginArguments) {
+        try(var compiler = new CorpusCompiler()) {
+            var classes = compiler.compile(CORPUS.generate(UNITS, CALLS_PER_UNIT, true), true, pluginArguments)
+                .orThrow()
+                .classes();
+            var results = new TreeMap<String, Integer>();
+            classes.forEach((className, bytes) -> readMethods(className, bytes, results));
+            return results;
+        }
+    }
+
+    // Reads the size of each method of the classes in a directory or a jar
+    private static Map<String, Integer> readMethods(Path path) {
+        var results = new TreeMap<String, Integer>();
+        try {
+            if(Files.isDirectory(path)){
+                readMethods(path, path, results);
+                return results;
+            }
+
+            try(var jar = FileSystems.newFileSystem(path)) {
+                for(var root : jar.getRootDirectories()){
+                    readMethods(root, root, results);
+                }
+            }
+
+            return results;
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot read classes from %s".formatted(path), exception);
+        }
+    }
+
+    private static void readMethods(Path root, Path directory, Map<String, Integer> results) throws IOException {
+        try(var files = Files.walk(directory)) {
+            for(var file : (Iterable<Path>) files::iterator){
+                var name = root.relativize(file).toString();
+                if(name.endsWith(".class") && !name.endsWith("module-info.class")){
+                    var className = name.substring(0, name.length() - ".class".length())
+                        .replace(file.getFileSystem().getSeparator(), ".");
+                    readMethods(className, Files.readAllBytes(file), results);
+                }
+            }
+        }
+    }
+
+    // Reads the size of the Code attribute of each method of a class
+    private static void readMethods(String className, byte[] bytes, Map<String, Integer> results) {
+        try(var input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if(input.readInt() != 0xCAFEBABE){
+                throw new IllegalArgumentException("%s is not a class file".formatted(className));
+            }
+
+            input.skipBytes(4);
+            var constants = readConstants(input);
+            input.skipBytes(6);
+            input.skipBytes(input.readUnsignedShort() * 2);
+            var fields = input.readUnsignedShort();
+            for(var field = 0; field < fields; field++){
+                input.skipBytes(6);
+                skipAttributes(input);
+            }
+
+            var methods = input.readUnsignedShort();
+            for(var method = 0; method < methods; method++){
+                input.skipBytes(2);
+                var name = constants[input.readUnsignedShort()];
+                var descriptor = constants[input.readUnsignedShort()];
+                var attributes = input.readUnsignedShort();
+                for(var attribute = 0; attribute < attributes; attribute++){
+                    var attributeName = constants[input.readUnsignedShort()];
+                    var length = input.readInt();
+                    if(!"Code".equals(attributeName)){
+                        input.skipBytes(length);
+                        continue;
+                    }
+
+                    input.skipBytes(4);
+                    var codeLength = input.readInt();
+                    input.skipBytes(length - 8);
+                    results.put("%s.%s%s".formatted(className, name, descriptor), codeLength);
+                }
+            }
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot read %s".formatted(className), exception);
+        }
+    }
+
+    // Reads the constant pool, only UTF8 entries are kept
+    private static String[] readConstants(DataInputStream input) throws IOException {
+        var constants = new String[input.readUnsignedShort()];
+        for(var index = 1; index < constants.length; index++){
+            var tag = input.readUnsignedByte();
+            switch (tag) {
+                case 1 -> constants[index] = input.readUTF();
+                case 7, 8, 16, 19, 20 -> input.skipBytes(2);
+                case 15 -> input.skipBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> input.skipBytes(4);
+                case 5, 6 -> {
+                    input.skipBytes(8);
+                    index++;
+                }
+                default -> throw new IllegalArgumentException("Unknown constant pool tag: %s".formatted(tag));
+            }
+        }
+
+        return constants;
+    }
+
+    private static void skipAttributes(DataInputStream input) throws IOException {
+        var attributes = input.readUnsignedShort();
+        for(var attribute = 0; attribute < attributes; attribute++){
+            input.skipBytes(2);
+            input.skipBytes(input.readInt());
+        }
+    }
+
+    // Prints the methods whose size changed and how many methods cross the inlining limits
+    private static void printReport(Map<String, Integer> before, Map<String, Integer> after) {
+        var methods = new TreeSet<>(before.keySet());
+        methods.addAll(after.keySet());
+        System.out.printf("%-80s %8s %8s%n", "Method", "Before", "After");
+        for(var method : methods){
+            var beforeSize = before.get(method);
+            var afterSize = after.get(method);
+            if(beforeSize == null || !beforeSize.equals(afterSize)){
+                System.out.printf("%-80s %8s %8s%n", method, format(beforeSize), format(afterSize));
+            }
+        }
+
+        System.out.printf("Total bytes: %s before, %s after%n", sum(before), sum(after));
+        System.out.printf("Methods above MaxInlineSize(%s): %s before, %s after%n", MAX_INLINE_SIZE, countAbove(before, MAX_INLINE_SIZE), countAbove(after, MAX_INLINE_SIZE));
+        System.out.printf("Methods above FreqInlineSize(%s): %s before, %s after%n", FREQ_INLINE_SIZE, countAbove(before, FREQ_INLINE_SIZE), countAbove(after, FREQ_INLINE_SIZE));
+    }
+
+    private static String format(Integer size) {
+        return size == null ? "-" : size.toString();
+    }
+
+    private static long sum(Map<String, Integer> sizes) {
+        return sizes.values()
+            .stream()
+            .mapToLong(Integer::longValue)
+            .sum();
+    }
+
+    private static long countAbove(Map<String, Integer> sizes, int limit) {
+        return sizes.values()
+            .stream()
+            .filter(size -> size > limit)
+            .count();
+    }
+}
@@ -0,0 +1,61 @@
+package it.auties.named.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Runs the checks of the plugin in the test phase of this module, so every build fails if the plugin compiles something differently than it should
+// Each check runs even if a previous one failed, the build fails at the end with the name and the error of every failed check
+// Checks compare classes, results, retained memory and the work counters of the plugin: the only durations they compare are relative,
+// with a large tolerance, while the time and the throughput of the plugin are measured by the JMH benchmarks
+// Run it with mvn verify, skip it with -DskipTests or run only some checks with -Dnamed.checks=<name>,<name>
+public final class Checks {
+    private static final Map<String, Check> CHECKS = createChecks();
+
+    private static Map<String, Check> createChecks() {
+        var results = new LinkedHashMap<String, Check>();
+        results.put("equivalence", EquivalenceCheck::run);
+        results.put("engine", EngineCheck::run);
+        results.put("bytecode", BytecodeSizeReport::run);
+        results.put("scaling", ScalingCheck::run);
+        results.put("parallel", ParallelCheck::run);
+        results.put("worker", WorkerCheck::run);
+        results.put("desugar", DesugarCheck::run);
+        results.put("retention", RetentionCheck::run);
+        results.put("separate", SeparateCompilationCheck::run);
+        results.put("invoker", InvokerCheck::run);
+        return results;
+    }
+
+    public static void main(String... args) {
+        var selected = System.getProperty("named.checks", "");
+        var names = selected.isBlank() ? CHECKS.keySet() : Arrays.stream(selected.split(",")).map(String::strip).toList();
+        var failures = new ArrayList<String>();
+        for(var name : names){
+            var check = CHECKS.get(name);
+            if(check == null){
+                throw new IllegalArgumentException("Unknown check: %s, the known checks are %s".formatted(name, CHECKS.keySet()));
+            }
+
+            System.out.printf("Running the %s check%n", name);
+            var start = System.nanoTime();
+            try {
+                check.run();
+                System.out.printf("The %s check passed in %d ms%n", name, (System.nanoTime() - start) / 1_000_000);
+            }catch (Exception | AssertionError exception){
+                exception.printStackTrace();
+                failures.add("%s: %s".formatted(name, exception.getMessage()));
+            }
+        }
+
+        if(!failures.isEmpty()){
+            throw new IllegalStateException("%s of %s checks failed:%n%s".formatted(failures.size(), names.size(), String.join(System.lineSeparator(), failures)));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        void run() throws Exception;
+    }
+}
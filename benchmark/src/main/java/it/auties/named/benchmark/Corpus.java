@@ -0,0 +1,243 @@
+package it.auties.named.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Generates deterministic compilation units for the benchmarks
+// Every unit can be generated using named arguments or using the equivalent positional arguments,
+// so that the plugin can be compared against plain javac compiling the same program
+public enum Corpus {
+    // Only positional invocations, the plugin should leave these units to javac
+    NO_NAMED {
+        @Override
+        void writeDeclarations(StringBuilder builder) {
+            builder.append("""
+                    static String format(String name, String surname, int age) {
+                        return name + " " + surname + " " + age;
+                    }
+                """);
+        }
+
+        @Override
+        String call(int index, boolean named) {
+            return "format(\"name%s\", \"surname\", %s)".formatted(index, index);
+        }
+    },
+
+    // One named invocation every twenty calls
+    SPARSE {
+        @Override
+        void writeDeclarations(StringBuilder builder) {
+            NO_NAMED.writeDeclarations(builder);
+        }
+
+        @Override
+        String call(int index, boolean named) {
+            if(index % 20 != 0 || !named){
+                return NO_NAMED.call(index, named);
+            }
+
+            return "format(age = %s, name = \"name%s\", surname = \"surname\")".formatted(index, index);
+        }
+    },
+
+    // Only named invocations that omit @Option parameters
+    DENSE_OPTIONS {
+        @Override
+        boolean usesOptions() {
+            return true;
+        }
+
+        @Override
+        void writeDeclarations(StringBuilder builder) {
+            builder.append("""
+                    static String greet(String name, @Option String surname, @Option int age, @Option("guest") String role) {
+                        return name + " " + surname + " " + age + " " + role;
+                    }
+                """);
+        }
+
+        @Override
+        String call(int index, boolean named) {
+            return switch (index % 3) {
+                case 0 -> named ? "greet(name = \"name%s\")".formatted(index)
+                    : "greet(\"name%s\", null, 0, \"guest\")".formatted(index);
+                case 1 -> named ? "greet(age = %s, name = \"name%s\")".formatted(index, index)
+                    : "greet(\"name%s\", null, %s, \"guest\")".formatted(index, index);
+                default -> named ? "greet(role = \"admin\", surname = \"surname\", name = \"name%s\")".formatted(index)
+                    : "greet(\"name%s\", \"surname\", 0, \"admin\")".formatted(index);
+            };
+        }
+    },
+
+    // Only named invocations that omit @Option parameters whose default values are large expressions
+    // The expressions don't invoke generic methods, as every invocation is nested in an overloaded one and javac would attribute them many times
+    DYNAMIC_OPTIONS {
+        private static final String TAG = "Integer.toHexString(31).concat(\"-\").concat(Long.toString(System.nanoTime() % 7)).concat(\"-tag\").toUpperCase()";
+        private static final String LIMIT = "Math.max(Integer.getInteger(\"corpus.limit\", 16), Runtime.getRuntime().availableProcessors() * 2)";
+
+        @Override
+        boolean usesOptions() {
+            return true;
+        }
+
+        @Override
+        void writeDeclarations(StringBuilder builder) {
+            builder.append("""
+                    static String describe(String name, @Option(%s) String tag, @Option(%s) int limit) {
+                        return name + " " + tag + " " + limit;
+                    }
+                """.formatted(TAG, LIMIT));
+        }
+
+        @Override
+        String call(int index, boolean named) {
+            return switch (index % 2) {
+                case 0 -> named ? "describe(name = \"name%s\")".formatted(index)
+                    : "describe(\"name%s\", %s, %s)".formatted(index, TAG, LIMIT);
+                default -> named ? "describe(limit = %s, name = \"name%s\")".formatted(index, index)
+                    : "describe(\"name%s\", %s, %s)".formatted(index, TAG, index);
+            };
+        }
+    },
+
+    // Named invocations of a method with variable arity
+    VARARGS {
+        @Override
+        void writeDeclarations(StringBuilder builder) {
+            builder.append("""
+                    static int sum(int first, int... rest) {
+                        var result = first;
+                        for (var value : rest) {
+                            result += value;
+                        }
+                        return result;
+                    }
+                """);
+        }
+
+        @Override
+        String call(int index, boolean named) {
+            return switch (index % 3) {
+                case 0 -> named ? "sum(rest = %s, first = 1)".formatted(index) : "sum(1, %s)".formatted(index);
+                case 1 -> named ? "sum(first = %s, rest = 2)".formatted(index) : "sum(%s, 2)".formatted(index);
+                default -> named ? "sum(first = %s)".formatted(index) : "sum(%s)".formatted(index);
+            };
+        }
+    },
+
+    // Invocations in a class that declares many overloads with the same name
+    OVERLOADED {
+        @Override
+        void writeDeclarations(StringBuilder builder) {
+            for(var arity = 1; arity <= OVERLOADS; arity++){
+                builder.append("    static String build(");
+                for(var parameter = 0; parameter < arity; parameter++){
+                    if(parameter != 0){
+                        builder.append(", ");
+                    }
+
+                    builder.append("int value").append(parameter);
+                }
+
+                builder.append(") {\n        return \"").append(arity).append("\";\n    }\n\n");
+            }
+
+            NO_NAMED.writeDeclarations(builder);
+        }
+
+        @Override
+        String call(int index, boolean named) {
+            if(index % 2 == 0){
+                return SPARSE.call(0, named);
+            }
+
+            var arity = 1 + index % OVERLOADS;
+            var builder = new StringBuilder("build(");
+            for(var parameter = 0; parameter < arity; parameter++){
+                if(parameter != 0){
+                    builder.append(", ");
+                }
+
+                builder.append(index + parameter);
+            }
+
+            return builder.append(')').toString();
+        }
+    };
+
+    private static final int OVERLOADS = 12;
+    private static final int METHODS = 10;
+
+    // Huge units are split into more methods, so that none exceeds the maximum size of a method
+    private static final int MAX_CALLS_PER_METHOD = 1_000;
+
+    // Huge units reuse the same constants, so that the constant pool of the class doesn't overflow
+    private static final int DISTINCT_VALUES = 1_000;
+
+    // Checks if the corpus imports the @Option annotation
+    boolean usesOptions() {
+        return false;
+    }
+
+    // Writes the methods invoked by the unit
+    abstract void writeDeclarations(StringBuilder builder);
+
+    // Returns an invocation of one of the declared methods
+    abstract String call(int index, boolean named);
+
+    // Generates the units of this corpus
+    public List<Source> generate(int units, int callsPerUnit, boolean named) {
+        var results = new ArrayList<Source>(units);
+        for(var unit = 0; unit < units; unit++){
+            results.add(generateUnit(unit, callsPerUnit, named));
+        }
+
+        return results;
+    }
+
+    private Source generateUnit(int unit, int callsPerUnit, boolean named) {
+        var className = "%s%s".formatted(toClassName(), unit);
+        var builder = new StringBuilder();
+        builder.append("package corpus;\n\n");
+        if(usesOptions()){
+            builder.append("import it.auties.named.annotation.Option;\n\n");
+        }
+
+        builder.append("public class ").append(className).append(" {\n");
+        writeDeclarations(builder);
+        var callsPerMethod = Math.min(MAX_CALLS_PER_METHOD, Math.max(1, callsPerUnit / METHODS));
+        for(var call = 0; call < callsPerUnit; call++){
+            if(call % callsPerMethod == 0){
+                if(call != 0){
+                    builder.append("    }\n\n");
+                }
+
+                builder.append("    public static void run").append(call / callsPerMethod).append("() {\n");
+            }
+
+            builder.append("        System.out.println(").append(call(call % DISTINCT_VALUES, named)).append(");\n");
+        }
+
+        if(callsPerUnit != 0){
+            builder.append("    }\n");
+        }
+
+        builder.append("}\n");
+        return new Source("corpus.%s".formatted(className), builder.toString());
+    }
+
+    private String toClassName() {
+        var result = new StringBuilder();
+        for(var part : name().split("_")){
+            result.append(part.charAt(0)).append(part.substring(1).toLowerCase());
+        }
+
+        return result.toString();
+    }
+
+    // A generated compilation unit
+    public record Source(String className, String content) {
+
+    }
+}
@@ -0,0 +1,211 @@
+package it.auties.named.benchmark;
+
+import com.sun.source.util.JavacTask;
+import it.auties.named.annotation.Option;
+import it.auties.named.benchmark.Corpus.Source;
+import it.auties.named.plugin.NamedParameterPlugin;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.tools.DiagnosticCollector;
+import javax.tools.DiagnosticListener;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+// Runs javac in process over in-memory sources, with or without the named parameters plugin
+// The plugin is initialized directly on the task, like javac does for -Xplugin:named, so that its classes stay warm between compilations
+public final class CorpusCompiler implements AutoCloseable {
+    private final javax.tools.JavaCompiler javac;
+    private final StandardJavaFileManager fileManager;
+    private final List<String> options;
+
+    public CorpusCompiler() {
+        this(List.of());
+    }
+
+    // Creates a compiler whose sources can also use the classes in the provided directories, for example a library compiled before
+    public CorpusCompiler(List<Path> classPath) {
+        this.javac = ToolProvider.getSystemJavaCompiler();
+        this.fileManager = javac.getStandardFileManager(null, null, null);
+        var paths = new ArrayList<String>();
+        paths.add(findClassPath().toString());
+        classPath.forEach(path -> paths.add(path.toString()));
+        this.options = List.of(
+            "-proc:none",
+            "-implicit:none",
+            "-classpath", String.join(File.pathSeparator, paths)
+        );
+    }
+
+    // Compiles the provided sources
+    public Result compile(Collection<Source> sources, boolean plugin, String... pluginArguments) {
+        var units = sources.stream()
+            .map(MemorySource::new)
+            .toList();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        var output = new MemoryFileManager(fileManager);
+        var task = (JavacTask) javac.getTask(null, output, diagnostics, options, null, units);
+        if(plugin){
+            new NamedParameterPlugin().init(task, pluginArguments);
+        }
+
+        var success = task.call();
+        var errors = diagnostics.getDiagnostics()
+            .stream()
+            .filter(diagnostic -> diagnostic.getKind() == javax.tools.Diagnostic.Kind.ERROR)
+            .map(Object::toString)
+            .toList();
+        return new Result(success, errors, new TreeMap<>(output.classes));
+    }
+
+    // Creates a task over the provided sources without initializing the plugin, so that its stages can be run manually
+    public JavacTask createTask(Collection<Source> sources, DiagnosticListener<? super JavaFileObject> diagnostics) {
+        var units = sources.stream()
+            .map(MemorySource::new)
+            .toList();
+        return (JavacTask) javac.getTask(null, new MemoryFileManager(fileManager), diagnostics, options, null, units);
+    }
+
+    // Finds the path that contains the @Option annotation
+    static Path findClassPath() {
+        try {
+            return Path.of(Option.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        }catch (URISyntaxException exception){
+            throw new IllegalStateException("Cannot find the named parameters plugin", exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            fileManager.close();
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot close compiler", exception);
+        }
+    }
+
+    // The result of a compilation
+    public record Result(boolean success, List<String> errors, Map<String, byte[]> classes) {
+        // Throws an exception if the compilation failed
+        public Result orThrow() {
+            if(!success){
+                throw new IllegalStateException("Compilation failed: %s".formatted(String.join(System.lineSeparator(), errors)));
+            }
+
+            return this;
+        }
+
+        // Loads one of the compiled classes in a new class loader, which also defines the other compiled classes
+        public Class<?> loadClass(String className) {
+            try {
+                return new MemoryClassLoader(classes).loadClass(className);
+            }catch (ClassNotFoundException exception){
+                throw new IllegalStateException("Cannot load %s".formatted(className), exception);
+            }
+        }
+    }
+
+    // Defines the classes that a compilation kept in memory
+    private static final class MemoryClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        private MemoryClassLoader(Map<String, byte[]> classes) {
+            super(CorpusCompiler.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            var bytes = classes.get(name);
+            if(bytes == null){
+                throw new ClassNotFoundException(name);
+            }
+
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        // The runtime invoker reads the @Option annotations from the class files, which only exist in memory
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            if(!name.endsWith(".class")){
+                return super.getResourceAsStream(name);
+            }
+
+            var bytes = classes.get(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+            return bytes != null ? new ByteArrayInputStream(bytes) : super.getResourceAsStream(name);
+        }
+    }
+
+    // A source that lives in memory
+    private static final class MemorySource extends SimpleJavaFileObject {
+        private final String content;
+
+        private MemorySource(Source source) {
+            super(URI.create("memory:///%s%s".formatted(source.className().replace('.', '/'), Kind.SOURCE.extension)), Kind.SOURCE);
+            this.content = source.content();
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    // Keeps the generated classes in memory
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        private MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+            this.classes = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("memory:///%s%s".formatted(className.replace('.', '/'), kind.extension)), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+
+        // The plugin starts automatically when javac can load it, so plugins and processors are loaded in isolation:
+        // the default loader delegates to the application class loader, which already contains the plugin
+        @Override
+        public ClassLoader getClassLoader(Location location) {
+            return new URLClassLoader(new URL[0], ClassLoader.getPlatformClassLoader());
+        }
+
+        @Override
+        public void close() {
+            // The standard file manager is shared between compilations
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import it.auties.named.desugar.Desugarer;
+import it.auties.named.desugar.Desugarer.Report;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+// Checks that the desugarer turns a source tree into plain Java that compiles without the plugin to the same code, and that later runs only touch what changed
+// Every corpus and the named form of every equivalence case are written to a source tree and desugared: the output must not refer to the plugin anymore,
+// and its disassembled methods, compiled without the plugin, must be identical to the ones of the original tree compiled with the plugin
+// The tree is desugared with one shard and with one shard per core, which must produce the same output, then desugared again: no file may be desugared or written;
+// once a comment is added to one file, only that file may be desugared and written
+// Run by Checks as the desugar check
+final class DesugarCheck {
+    private static final int UNITS = 5;
+    private static final int CALLS_PER_UNIT = 200;
+    private static final String PLUGIN_PACKAGE = "it.auties.named";
+
+    static void run() throws IOException {
+        var sources = generateSources();
+        var root = Files.createTempDirectory("named-desugar");
+        try {
+            var input = root.resolve("sources");
+            for(var source : sources){
+                var file = input.resolve(toFile(source));
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, source.content());
+            }
+
+            var options = List.of("-classpath", CorpusCompiler.findClassPath().toString());
+            var cores = Runtime.getRuntime().availableProcessors();
+            var serial = desugar(new Desugarer(input, root.resolve("serial"), options, List.of(), 1), "serial");
+            var parallelDesugarer = new Desugarer(input, root.resolve("parallel"), options, List.of(), cores);
+            var parallel = desugar(parallelDesugarer, "parallel");
+            var outputs = read(root.resolve("parallel"));
+            if(!read(root.resolve("serial")).equals(outputs)){
+                throw new IllegalStateException("The output depends on the number of shards");
+            }
+
+            if(serial.desugared() == 0 || parallel.desugared() != serial.desugared()){
+                throw new IllegalStateException("Expected the same files to be desugared: %s and %s".formatted(serial, parallel));
+            }
+
+            outputs.forEach((file, content) -> {
+                if(content.contains(PLUGIN_PACKAGE)){
+                    throw new IllegalStateException("%s still refers to the plugin".formatted(file));
+                }
+            });
+            compareBytecode(sources, outputs).ifPresent(difference -> {
+                throw new IllegalStateException("The desugared tree isn't equivalent to the original one: %s".formatted(difference));
+            });
+
+            var unchanged = desugar(parallelDesugarer, "no change");
+            if(unchanged.desugared() != 0 || unchanged.written() != 0){
+                throw new IllegalStateException("Nothing changed, but %s files were desugared and %s written".formatted(unchanged.desugared(), unchanged.written()));
+            }
+
+            var edited = input.resolve(toFile(sources.get(0)));
+            Files.writeString(edited, Files.readString(edited) + "// Edited\n");
+            var comment = desugar(parallelDesugarer, "one comment");
+            if(comment.changed() != 1 || comment.desugared() > 1 || comment.written() != 1){
+                throw new IllegalStateException("One file changed, but %s files were desugared and %s written".formatted(comment.desugared(), comment.written()));
+            }
+        }finally {
+            delete(root);
+        }
+    }
+
+    private static List<Source> generateSources() {
+        var results = new ArrayList<Source>();
+        for(var corpus : Corpus.values()){
+            results.addAll(corpus.generate(UNITS, CALLS_PER_UNIT, true));
+        }
+
+        for(var equivalenceCase : EquivalenceCase.values()){
+            results.add(equivalenceCase.generate(true));
+        }
+
+        return results;
+    }
+
+    private static Report desugar(Desugarer desugarer, String name) throws IOException {
+        var report = desugarer.desugar();
+        System.out.printf("%-12s %s%n", name, report);
+        if(!report.errors().isEmpty()){
+            throw new IllegalStateException("Cannot desugar the tree:%n%s".formatted(String.join(System.lineSeparator(), report.errors())));
+        }
+
+        return report;
+    }
+
+    // Compiles the original tree with the plugin and the desugared one without it, then returns the first line that differs between their disassembled classes, if any
+    private static Optional<String> compareBytecode(List<Source> sources, Map<String, String> outputs) {
+        try(var compiler = new CorpusCompiler()) {
+            var expected = compiler.compile(sources, true).orThrow().classes();
+            var desugaredSources = outputs.entrySet()
+                .stream()
+                .map(entry -> new Source(entry.getKey().replace('/', '.').replace(".java", ""), entry.getValue()))
+                .toList();
+            var actual = compiler.compile(desugaredSources, false).orThrow().classes();
+            if(!expected.keySet().equals(actual.keySet())){
+                return Optional.of("different classes: %s and %s".formatted(expected.keySet(), actual.keySet()));
+            }
+
+            for(var className : expected.keySet()){
+                // The desugared sources are rewritten, so their lines don't have to match the original ones
+                var expectedLines = EquivalenceCheck.disassemble(className, expected, false);
+                var actualLines = EquivalenceCheck.disassemble(className, actual, false);
+                if(!expectedLines.equals(actualLines)){
+                    return Optional.of("%s is different".formatted(className));
+                }
+            }
+
+            return Optional.empty();
+        }
+    }
+
+    private static Path toFile(Source source) {
+        return Path.of("%s.java".formatted(source.className().replace('.', '/')));
+    }
+
+    // Reads the Java files of a tree, keyed by their path relative to its root
+    private static Map<String, String> read(Path root) throws IOException {
+        var results = new TreeMap<String, String>();
+        try(var files = Files.walk(root)) {
+            for(var file : (Iterable<Path>) files.filter(path -> path.toString().endsWith(".java"))::iterator){
+                results.put(root.relativize(file).toString().replace(root.getFileSystem().getSeparator(), "/"), Files.readString(file));
+            }
+        }
+
+        return results;
+    }
+
+    private static void delete(Path directory) {
+        try(var files = Files.walk(directory)) {
+            for(var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator){
+                Files.deleteIfExists(file);
+            }
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot delete %s".formatted(directory), exception);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Checks that the enter engine produces the same classes as the attribution engine while attributing fewer members twice
+// Every corpus and the named form of every equivalence case are compiled with both engines: the classes must be byte for byte identical
+// The corpora only invoke methods that can be resolved before attribution, so the enter engine must not attribute any of their members again
+// Run by Checks as the engine check
+final class EngineCheck {
+    private static final int UNITS = 5;
+    private static final int CALLS_PER_UNIT = 200;
+    private static final Pattern MEMBERS_ATTRIBUTED = Pattern.compile("\"membersAttributed\": (\\d+)");
+
+    static void run() {
+        var failures = new ArrayList<String>();
+        try(var compiler = new CorpusCompiler()) {
+            for(var corpus : Corpus.values()){
+                check(compiler, corpus.name(), corpus.generate(UNITS, CALLS_PER_UNIT, true), true)
+                    .ifPresent(failures::add);
+            }
+
+            for(var equivalenceCase : EquivalenceCase.values()){
+                check(compiler, equivalenceCase.name(), List.of(equivalenceCase.generate(true)), false)
+                    .ifPresent(failures::add);
+            }
+        }
+
+        if(!failures.isEmpty()){
+            throw new IllegalStateException("The engines don't agree:%n%s".formatted(String.join(System.lineSeparator(), failures)));
+        }
+    }
+
+    // Compiles the sources with both engines and returns the first difference, if any
+    private static Optional<String> check(CorpusCompiler compiler, String name, List<Source> sources, boolean resolvable) {
+        var attribution = compile(compiler, sources, "attribution");
+        var enter = compile(compiler, sources, "enter");
+        System.out.printf("%-20s members attributed again: %s with attribution, %s with enter%n", name, attribution.membersAttributed(), enter.membersAttributed());
+        var difference = compareClasses(attribution.classes(), enter.classes());
+        if(difference.isPresent()){
+            return difference.map(message -> "%s: %s".formatted(name, message));
+        }
+
+        if(resolvable ? enter.membersAttributed() != 0 : enter.membersAttributed() > attribution.membersAttributed()){
+            return Optional.of("%s: the enter engine attributed %s members again, the attribution engine %s".formatted(name, enter.membersAttributed(), attribution.membersAttributed()));
+        }
+
+        return Optional.empty();
+    }
+
+    private static Optional<String> compareClasses(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+        if(!expected.keySet().equals(actual.keySet())){
+            return Optional.of("different classes: %s and %s".formatted(expected.keySet(), actual.keySet()));
+        }
+
+        for(var entry : expected.entrySet()){
+            if(!Arrays.equals(entry.getValue(), actual.get(entry.getKey()))){
+                return Optional.of("%s is different".formatted(entry.getKey()));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    // Compiles the sources with an engine and reads the number of members attributed again from the metrics written by the plugin
+    private static Compilation compile(CorpusCompiler compiler, List<Source> sources, String engine) {
+        try {
+            var report = Files.createTempFile("named-metrics", ".json");
+            try {
+                var result = compiler.compile(sources, true, "engine=%s".formatted(engine), "metrics=%s".formatted(report))
+                    .orThrow();
+                var membersAttributed = MEMBERS_ATTRIBUTED.matcher(Files.readString(report))
+                    .results()
+                    .mapToLong(match -> Long.parseLong(match.group(1)))
+                    .sum();
+                return new Compilation(result.classes(), membersAttributed);
+            }finally {
+                Files.deleteIfExists(report);
+            }
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot compile with the %s engine".formatted(engine), exception);
+        }
+    }
+
+    private record Compilation(Map<String, byte[]> classes, long membersAttributed) {
+
+    }
+}
@@ -0,0 +1,285 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+
+// Pairs of units that invoke the same methods using named arguments and @Option parameters and using the equivalent hand-written positional arguments
+// The plugin only rewrites invocations, so both forms of a case must compile to the same bytecode and run at the same speed
+// Every unit is an IntSupplier whose getAsInt method contains the invocations, so that the benchmarks can run them without reflection
+// Arguments have no side effects, as the plugin evaluates them in the order of the parameters instead of the order in which they are written
+public enum EquivalenceCase {
+    // Named arguments in a different order than the parameters
+    REORDERED {
+        @Override
+        String declarations() {
+            return """
+                    static int volume(int width, int height, int depth) {
+                        return width * height * depth;
+                    }
+                """;
+        }
+
+        @Override
+        String expression(boolean named) {
+            return named ? "volume(depth = seed, width = 2, height = 3) + volume(height = seed, depth = 1, width = 4)"
+                : "volume(2, 3, seed) + volume(4, seed, 1)";
+        }
+    },
+
+    // Omitted parameters whose default values are literals
+    LITERAL_DEFAULTS {
+        @Override
+        String declarations() {
+            return """
+                    static int scale(int value, @Option(3) int factor, @Option("px") String unit) {
+                        return value * factor + unit.length();
+                    }
+                """;
+        }
+
+        @Override
+        String expression(boolean named) {
+            return named ? "scale(value = seed) + scale(unit = \"em\", value = seed)"
+                : "scale(seed, 3, \"px\") + scale(seed, 3, \"em\")";
+        }
+    },
+
+    // Omitted parameters without a default value, which receive null, zero or false
+    IMPLICIT_DEFAULTS {
+        @Override
+        String declarations() {
+            return """
+                    static int describe(int value, @Option String label, @Option long offset, @Option boolean negate) {
+                        var result = (int) (value + offset) + (label == null ? 0 : label.length());
+                        return negate ? -result : result;
+                    }
+                """;
+        }
+
+        @Override
+        String expression(boolean named) {
+            return named ? "describe(value = seed) + describe(negate = true, value = seed)"
+                : "describe(seed, null, 0L, false) + describe(seed, null, 0L, true)";
+        }
+    },
+
+    // Omitted parameters whose default values invoke methods, more than the free positions after the invocation on its line
+    // Every invocation starts a new entry in the line number table if its line changes, so the default values must stay on the line of the invocation
+    LINE_NUMBERS {
+        @Override
+        String declarations() {
+            return """
+                    static int sum(int v, @Option(Math.abs(-1)) int a, @Option(Math.abs(-2)) int b, @Option(Math.abs(-3)) int c,
+                                   @Option(Math.abs(-4)) int d, @Option(Math.abs(-5)) int e, @Option(Math.abs(-6)) int f, @Option(Math.abs(-7)) int g) {
+                        return v + a + b + c + d + e + f + g;
+                    }
+                """;
+        }
+
+        @Override
+        String expression(boolean named) {
+            return named ? "sum(v = seed)"
+                : "sum(seed, Math.abs(-1), Math.abs(-2), Math.abs(-3), Math.abs(-4), Math.abs(-5), Math.abs(-6), Math.abs(-7))";
+        }
+    },
+
+    // Omitted parameters whose default values are expressions evaluated by every invocation
+    DYNAMIC_DEFAULTS {
+        @Override
+        String declarations() {
+            return """
+                    static int clamp(int value, @Option(Math.max(Integer.MIN_VALUE / 2, -1000)) int min, @Option(Integer.MAX_VALUE >> 4) int max) {
+                        return Math.min(Math.max(value, min), max);
+                    }
+                """;
+        }
+
+        @Override
+        String expression(boolean named) {
+            return named ? "clamp(value = seed) + clamp(max = 10, value = seed)"
+                : "clamp(seed, Math.max(Integer.MIN_VALUE / 2, -1000), Integer.MAX_VALUE >> 4) + clamp(seed, Math.max(Integer.MIN_VALUE / 2, -1000), 10)";
+        }
+    },
+
+    // Omitted arrays and boxed literals, which are constants held by a class nested in the declaring class
+    // Each holder is named after the method, the parameter and the hash of the erased types of the parameters, int;int[];Integer;
+    // The positional form reads the same constants, as a hand-written invocation that doesn't allocate would
+    SHARED_CONSTANTS {
+        @Override
+        String declarations() {
+            return """
+                    static int count(int value, @Option int[] values, @Option(1000) Integer limit) {
+                        return Math.min(value + values.length, limit);
+                    }
+                """;
+        }
+
+        @Override
+        String expression(boolean named) {
+            return named ? "count(value = seed) + count(limit = 10, value = seed)"
+                : "count(seed, SharedConstants.$Constant$count$values$ced4d8d3.VALUE, SharedConstants.$Constant$count$limit$ced4d8d3.VALUE) + count(seed, SharedConstants.$Constant$count$values$ced4d8d3.VALUE, 10)";
+        }
+    },
+
+    // Named arguments of a method with variable arity
+    VARARGS {
+        @Override
+        String declarations() {
+            return """
+                    static int sum(int first, int... rest) {
+                        var result = first;
+                        for (var value : rest) {
+                            result += value;
+                        }
+                        return result;
+                    }
+                """;
+        }
+
+        @Override
+        String expression(boolean named) {
+            return named ? "sum(rest = seed, first = 1) + sum(first = seed)"
+                : "sum(1, seed) + sum(seed)";
+        }
+    },
+
+    // Named arguments of the canonical constructor of a record, followed by an instance invocation
+    CONSTRUCTOR {
+        @Override
+        String declarations() {
+            return """
+                    record Range(int start, @Option(16) int end) {
+                        int size() {
+                            return end - start;
+                        }
+                    }
+                """;
+        }
+
+        @Override
+        String expression(boolean named) {
+            return named ? "new Range(start = seed).size() + new Range(end = seed, start = 1).size()"
+                : "new Range(seed, 16).size() + new Range(1, seed).size()";
+        }
+    },
+
+    // Named arguments that select one of many overloads
+    OVERLOADED {
+        @Override
+        String declarations() {
+            return """
+                    static int format(int value) {
+                        return value;
+                    }
+
+                    static int format(int value, int radix) {
+                        return Integer.toString(value, radix).length();
+                    }
+
+                    static int format(int value, int radix, boolean signed) {
+                        return signed ? -format(value, radix) : format(value, radix);
+                    }
+                """;
+        }
+
+        @Override
+        String expression(boolean named) {
+            return named ? "format(radix = 16, value = seed) + format(signed = true, value = seed, radix = 2)"
+                : "format(seed, 16) + format(seed, 2, true)";
+        }
+    },
+
+    // Named arguments of methods that nested and inner classes inherit from an interface and a superclass or find in the enclosing class
+    // Javac reports these methods as missing from the class of the invocation, both engines must look them up where javac would
+    INHERITED {
+        @Override
+        String declarations() {
+            return """
+                    interface Shape {
+                        default int area(int width, @Option(2) int height) {
+                            return width * height;
+                        }
+                    }
+
+                    static class Base {
+                        int scale(int value, @Option(3) int factor) {
+                            return value * factor;
+                        }
+                    }
+
+                    int offset(int value, @Option(7) int delta) {
+                        return value + delta;
+                    }
+                """;
+        }
+
+        @Override
+        String nestedClasses(boolean named) {
+            return """
+
+                    static class Nested extends Base implements Shape {
+                        int measure(int seed) {
+                            return %s;
+                        }
+                    }
+
+                    class Inner extends Base {
+                        int measure(int seed) {
+                            return %s;
+                        }
+                    }
+                """.formatted(named ? "area(width = seed) + scale(value = seed)" : "area(seed, 2) + scale(seed, 3)",
+                named ? "scale(factor = seed, value = 2) + offset(value = seed)" : "scale(2, seed) + offset(seed, 7)");
+        }
+
+        @Override
+        String expression(boolean named) {
+            return "new Nested().measure(seed) + new Inner().measure(seed)";
+        }
+    };
+
+    // Returns the methods invoked by the unit
+    abstract String declarations();
+
+    // Returns the invocations of the unit, which can use the seed variable
+    abstract String expression(boolean named);
+
+    // Returns the classes declared by the unit that contain invocations too
+    String nestedClasses(boolean named) {
+        return "";
+    }
+
+    // Returns the name of the class of the unit
+    public String className() {
+        return "corpus.%s".formatted(simpleName());
+    }
+
+    // Generates the unit of this case
+    public Source generate(boolean named) {
+        var content = """
+            package corpus;
+
+            import it.auties.named.annotation.Option;
+
+            public class %s implements java.util.function.IntSupplier {
+                private int seed;
+
+            %s
+                @Override
+                public int getAsInt() {
+                    var seed = this.seed++;
+                    return %s;
+                }
+            }
+            """.formatted(simpleName(), declarations() + nestedClasses(named), expression(named));
+        return new Source(className(), content);
+    }
+
+    private String simpleName() {
+        var result = new StringBuilder();
+        for(var part : name().split("_")){
+            result.append(part.charAt(0)).append(part.substring(1).toLowerCase());
+        }
+
+        return result.toString();
+    }
+}
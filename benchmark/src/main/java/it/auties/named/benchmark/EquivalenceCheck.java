@@ -0,0 +1,141 @@
+package it.auties.named.benchmark;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntSupplier;
+import java.util.regex.Pattern;
+import java.util.spi.ToolProvider;
+
+// Checks that named arguments and @Option parameters have no runtime cost
+// Every case is compiled using named arguments and using the equivalent hand-written positional arguments:
+// the disassembled methods of the two forms must be identical, except for the indexes of the constant pool, and must return the same values
+// Their line number tables are compared too, as the default values added to an invocation must be attributed to its line
+// Both forms are compiled with the plugin, which encodes the default values of the @Option annotations, but it has nothing to rewrite in the positional one
+// Run by Checks as the equivalence check
+final class EquivalenceCheck {
+    private static final int INVOCATIONS = 64;
+
+    // The indexes of the constant pool depend on the order in which javac adds the constants, the comments of javap already contain the symbols they refer to
+    private static final Pattern CONSTANT_INDEX = Pattern.compile("#\\d+(:\\d+)?");
+
+    static void run() {
+        var failures = new ArrayList<String>();
+        for(var equivalenceCase : EquivalenceCase.values()){
+            var named = compile(equivalenceCase, true);
+            var positional = compile(equivalenceCase, false);
+            var difference = compareBytecode(named, positional)
+                .or(() -> compareResults(equivalenceCase, named, positional));
+            System.out.printf("%-20s %s%n", equivalenceCase, difference.orElse("identical"));
+            difference.ifPresent(message -> failures.add("%s: %s".formatted(equivalenceCase, message)));
+        }
+
+        if(!failures.isEmpty()){
+            throw new IllegalStateException("The named invocations aren't equivalent to the positional ones:%n%s".formatted(String.join(System.lineSeparator(), failures)));
+        }
+    }
+
+    private static CorpusCompiler.Result compile(EquivalenceCase equivalenceCase, boolean named) {
+        try(var compiler = new CorpusCompiler()) {
+            return compiler.compile(List.of(equivalenceCase.generate(named)), true)
+                .orThrow();
+        }
+    }
+
+    // Returns the first line that differs between the disassembled classes of the two forms, if any
+    private static Optional<String> compareBytecode(CorpusCompiler.Result named, CorpusCompiler.Result positional) {
+        if(!named.classes().keySet().equals(positional.classes().keySet())){
+            return Optional.of("different classes: %s and %s".formatted(named.classes().keySet(), positional.classes().keySet()));
+        }
+
+        for(var className : named.classes().keySet()){
+            var namedLines = disassemble(className, named.classes(), true);
+            var positionalLines = disassemble(className, positional.classes(), true);
+            for(var index = 0; index < Math.max(namedLines.size(), positionalLines.size()); index++){
+                var namedLine = index < namedLines.size() ? namedLines.get(index) : "<end>";
+                var positionalLine = index < positionalLines.size() ? positionalLines.get(index) : "<end>";
+                if(!namedLine.equals(positionalLine)){
+                    return Optional.of("%s differs at line %s:%n  named:      %s%n  positional: %s".formatted(className, index + 1, namedLine.strip(), positionalLine.strip()));
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    // Disassembles the code of every method of a class using javap, with its line number table if requested
+    static List<String> disassemble(String className, Map<String, byte[]> classes, boolean lineNumbers) {
+        var javap = ToolProvider.findFirst("javap")
+            .orElseThrow(() -> new IllegalStateException("javap isn't available"));
+        Path directory = null;
+        try {
+            directory = Files.createTempDirectory("named-equivalence");
+            var file = directory.resolve("%s.class".formatted(className.replace('.', '_')));
+            Files.write(file, classes.get(className));
+            var output = new StringWriter();
+            var options = lineNumbers ? new String[]{"-c", "-l", "-p", file.toString()} : new String[]{"-c", "-p", file.toString()};
+            var exitCode = javap.run(new PrintWriter(output), new PrintWriter(output), options);
+            if(exitCode != 0){
+                throw new IllegalStateException("Cannot disassemble %s: %s".formatted(className, output));
+            }
+
+            return output.toString()
+                .lines()
+                .map(line -> CONSTANT_INDEX.matcher(line).replaceAll("#"))
+                .toList();
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot disassemble %s".formatted(className), exception);
+        }finally {
+            delete(directory);
+        }
+    }
+
+    private static void delete(Path directory) {
+        if(directory == null){
+            return;
+        }
+
+        try(var files = Files.walk(directory)) {
+            for(var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator){
+                Files.deleteIfExists(file);
+            }
+        }catch (IOException exception){
+            // The directory is temporary
+        }
+    }
+
+    // Returns the first invocation whose result differs between the two forms, if any
+    private static Optional<String> compareResults(EquivalenceCase equivalenceCase, CorpusCompiler.Result named, CorpusCompiler.Result positional) {
+        var namedSupplier = instantiate(named, equivalenceCase.className());
+        var positionalSupplier = instantiate(positional, equivalenceCase.className());
+        for(var invocation = 0; invocation < INVOCATIONS; invocation++){
+            var namedResult = namedSupplier.getAsInt();
+            var positionalResult = positionalSupplier.getAsInt();
+            if(namedResult != positionalResult){
+                return Optional.of("invocation %s returned %s instead of %s".formatted(invocation, namedResult, positionalResult));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    // Creates an instance of the class of a case
+    static IntSupplier instantiate(CorpusCompiler.Result result, String className) {
+        try {
+            return (IntSupplier) result.loadClass(className)
+                .getDeclaredConstructor()
+                .newInstance();
+        }catch (NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException exception){
+            throw new IllegalStateException("Cannot instantiate %s".formatted(className), exception);
+        }
+    }
+}
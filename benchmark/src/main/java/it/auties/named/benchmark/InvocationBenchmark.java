@@ -0,0 +1,49 @@
+package it.auties.named.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures the invocations of each equivalence case at runtime, using named arguments and using the equivalent positional arguments
+// The two forms compile to the same bytecode, so their scores must be the same: any difference is noise
+// Every fork loads only one form of one case, so that the JIT sees a single implementation of the supplier
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InvocationBenchmark {
+    @Param
+    private EquivalenceCase equivalenceCase;
+
+    @Param({"true", "false"})
+    private boolean named;
+
+    private IntSupplier invocations;
+
+    @Setup
+    public void setup() {
+        try(var compiler = new CorpusCompiler()) {
+            var result = compiler.compile(List.of(equivalenceCase.generate(named)), true)
+                .orThrow();
+            this.invocations = EquivalenceCheck.instantiate(result, equivalenceCase.className());
+        }
+    }
+
+    @Benchmark
+    public int invoke() {
+        return invocations.getAsInt();
+    }
+}
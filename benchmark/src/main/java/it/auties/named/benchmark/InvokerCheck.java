@@ -0,0 +1,121 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import it.auties.named.runtime.NamedInvoker;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Checks that the named invoker passes the same arguments as named invocations compiled with the plugin
+// The default values of a class compiled with the plugin are parsed at runtime: literals of every type, holders of constants and invariant values
+// Arguments are then provided in another order than the parameters, through a map and to a constructor,
+// while unknown, repeated and missing names must be rejected like default values that can't be evaluated at runtime
+// Run by Checks as the invoker check
+final class InvokerCheck {
+    private static final String CLASS_NAME = "corpus.Shapes";
+    private static final String SOURCE = """
+        package corpus;
+
+        import it.auties.named.annotation.Option;
+
+        public class Shapes {
+            private final String description;
+
+            public Shapes(String name, @Option("square") String kind, @Option(4) int sides) {
+                this.description = name + " " + kind + " " + sides;
+            }
+
+            public static String literals(@Option("a\\tb\\u0041") String text, @Option('x') char character, @Option(0x1F) int hex, @Option(-2L) long negative,
+                                          @Option(1.5f) float single, @Option(1_000.25) double number, @Option(true) boolean flag, @Option(1000) Integer boxed,
+                                          @Option int[] empty, @Option Object nothing) {
+                return String.join("|", text, String.valueOf(character), String.valueOf(hex), String.valueOf(negative), String.valueOf(single),
+                    String.valueOf(number), String.valueOf(flag), String.valueOf(boxed), String.valueOf(empty.length), String.valueOf(nothing));
+            }
+
+            public static String area(int width, @Option(3) int height, @Option("cm") String unit) {
+                return width * height + unit;
+            }
+
+            static int offset(int value, @Option(value = Shapes.seed(), invariant = true) int seed) {
+                return value + seed;
+            }
+
+            static int seed() {
+                return 40;
+            }
+
+            public static String dynamic(@Option(String.valueOf(seed())) String value) {
+                return value;
+            }
+
+            @Override
+            public String toString() {
+                return description;
+            }
+        }
+        """;
+
+    static void run() throws Exception {
+        try {
+            invoke();
+        }catch (Exception | Error exception){
+            throw exception;
+        }catch (Throwable throwable){
+            throw new IllegalStateException("Cannot invoke %s".formatted(CLASS_NAME), throwable);
+        }
+    }
+
+    private static void invoke() throws Throwable {
+        Class<?> type;
+        try(var compiler = new CorpusCompiler()) {
+            type = compiler.compile(List.of(new Source(CLASS_NAME, SOURCE)), true, "parameters")
+                .orThrow()
+                .loadClass(CLASS_NAME);
+        }
+
+        var literals = type.getMethod("literals", String.class, char.class, int.class, long.class, float.class, double.class, boolean.class, Integer.class, int[].class, Object.class);
+        check("literals", NamedInvoker.of(literals).invoke(null), "a\tbA|x|31|-2|1.5|1000.25|true|1000|0|null");
+        check("named literal", NamedInvoker.of(literals, "flag", "text").invoke(null, false, "text"), "text|x|31|-2|1.5|1000.25|false|1000|0|null");
+
+        var area = type.getMethod("area", int.class, int.class, String.class);
+        check("reordered", NamedInvoker.of(area, "unit", "width").invoke(null, "mm", 5), "15mm");
+        check("map", NamedInvoker.invoke(area, null, Map.of("height", 2, "width", 4)), "8cm");
+        var offset = type.getDeclaredMethod("offset", int.class, int.class);
+        check("invariant", NamedInvoker.of(offset, "value").invoke(null, 2), 42);
+
+        var constructor = type.getConstructor(String.class, String.class, int.class);
+        check("constructor", NamedInvoker.construct(constructor, Map.of("sides", 3, "name", "shape")).toString(), "shape square 3");
+        check("named constructor", NamedInvoker.of(constructor, "kind", "name").invoke(null, "circle", "shape").toString(), "shape circle 4");
+
+        reject("unknown name", () -> NamedInvoker.of(area, "width", "depth"));
+        reject("unknown key", () -> NamedInvoker.invoke(area, null, Map.of("width", 1, "depth", 2)));
+        reject("repeated name", () -> NamedInvoker.of(area, "width", "width"));
+        reject("missing name", () -> NamedInvoker.of(area, "unit"));
+        reject("missing argument", () -> NamedInvoker.of(area, "width", "unit").invoke(null, 1));
+        reject("dynamic default", () -> NamedInvoker.of(type.getMethod("dynamic", String.class)));
+    }
+
+    private static void check(String name, Object actual, Object expected) {
+        if(!Objects.equals(actual, expected)){
+            throw new IllegalStateException("The %s invocation returned %s instead of %s".formatted(name, actual, expected));
+        }
+
+        System.out.printf("%-18s %s%n", name, actual);
+    }
+
+    private static void reject(String name, Invocation invocation) throws Throwable {
+        try {
+            invocation.run();
+        }catch (IllegalArgumentException exception){
+            System.out.printf("%-18s rejected: %s%n", name, exception.getMessage());
+            return;
+        }
+
+        throw new IllegalStateException("The %s invocation wasn't rejected".formatted(name));
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        void run() throws Throwable;
+    }
+}
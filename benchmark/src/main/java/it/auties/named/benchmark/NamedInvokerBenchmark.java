@@ -0,0 +1,89 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import it.auties.named.runtime.NamedInvoker;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures a method with @Option parameters invoked at runtime using named arguments, against a direct invocation and plain reflection
+// The reflective invocation passes the default values explicitly, as reflection can't read them
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class NamedInvokerBenchmark {
+    private static final String CLASS_NAME = "corpus.Target";
+    private static final String SOURCE = """
+        package corpus;
+
+        import it.auties.named.annotation.Option;
+
+        public class Target implements java.util.function.IntSupplier {
+            public static int width = 7;
+
+            public static int area(int width, @Option(3) int height, @Option("cm") String unit) {
+                return width * height + unit.length();
+            }
+
+            @Override
+            public int getAsInt() {
+                return area(width, 3, "cm");
+            }
+        }
+        """;
+
+    private IntSupplier direct;
+    private Method method;
+    private NamedInvoker invoker;
+    private Map<String, Object> arguments;
+    private Integer width;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        try(var compiler = new CorpusCompiler()) {
+            var result = compiler.compile(List.of(new Source(CLASS_NAME, SOURCE)), true, "parameters")
+                .orThrow();
+            this.direct = EquivalenceCheck.instantiate(result, CLASS_NAME);
+            this.method = result.loadClass(CLASS_NAME).getMethod("area", int.class, int.class, String.class);
+        }
+
+        this.invoker = NamedInvoker.of(method, "width");
+        this.width = 7;
+        this.arguments = Map.of("width", width);
+    }
+
+    @Benchmark
+    public int direct() {
+        return direct.getAsInt();
+    }
+
+    @Benchmark
+    public Object reflection() throws ReflectiveOperationException {
+        return method.invoke(null, width, 3, "cm");
+    }
+
+    @Benchmark
+    public Object invoker() throws Throwable {
+        return invoker.invoke(null, width);
+    }
+
+    @Benchmark
+    public Object invokerWithMap() throws Throwable {
+        return NamedInvoker.invoke(method, null, arguments);
+    }
+}
@@ -0,0 +1,60 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures the throughput of compilations running concurrently in the same JVM, like Gradle workers or Maven -T builds, with and without the plugin
+// Every thread compiles its own module with its own compiler, as the standard file manager isn't thread safe:
+// run it with -t 1 and with -t <cores>, the score should grow with the threads
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ParallelBenchmark {
+    static final int UNITS = 5;
+    static final int CALLS_PER_UNIT = 200;
+
+    @Param
+    private Corpus corpus;
+
+    @Param({"true", "false"})
+    private boolean plugin;
+
+    private CorpusCompiler compiler;
+    private List<Source> sources;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.compiler = new CorpusCompiler();
+        this.sources = corpus.generate(UNITS, CALLS_PER_UNIT, plugin);
+        compiler.compile(sources, plugin).orThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compiler.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UNITS)
+    public CorpusCompiler.Result compile() {
+        return compiler.compile(sources, plugin);
+    }
+}
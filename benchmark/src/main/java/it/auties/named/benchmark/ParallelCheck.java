@@ -0,0 +1,136 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Checks that compilations running concurrently in the same JVM, like Gradle workers or Maven -T builds, don't interfere with each other
+// Every module is compiled serially and then many times on a thread pool: the classes must be identical
+// On a machine with more than one core, the thread pool must also compile the modules faster than a single thread,
+// so that a lock or any other state shared by all compilations can't serialize them quietly
+// Run by Checks as the parallel check, the efficiency can be changed using -Dnamed.parallel.efficiency
+// ParallelBenchmark measures in detail how the throughput grows with the cores
+final class ParallelCheck {
+    private static final int MODULES = 32;
+    private static final int UNITS = 5;
+    private static final int CALLS_PER_UNIT = 200;
+    private static final int RUNS = 3;
+
+    // Compilations always overlap, even on a single core, so that shared state is exercised
+    private static final int MIN_THREADS = 4;
+
+    // How much of each additional core the concurrent compilations must use, a global lock uses none
+    private static final double DEFAULT_EFFICIENCY = 0.25;
+
+    // The modules are too few to keep more cores busy, so the bound stops growing after these
+    private static final int MAX_MEASURED_CORES = 8;
+
+    static void run() throws InterruptedException {
+        var cores = Runtime.getRuntime().availableProcessors();
+        var threads = Math.max(cores, MIN_THREADS);
+        var modules = generateModules();
+        var expected = compileSerially(modules);
+
+        // The first serial run warms up the compiler, the second one is measured
+        var serialStart = System.nanoTime();
+        compileSerially(modules);
+        var serialNanos = System.nanoTime() - serialStart;
+        var concurrentNanos = Long.MAX_VALUE;
+        for(var run = 0; run < RUNS; run++){
+            var concurrentStart = System.nanoTime();
+            var actual = compileConcurrently(modules, threads);
+            concurrentNanos = Math.min(concurrentNanos, System.nanoTime() - concurrentStart);
+            checkEquals(expected, actual);
+        }
+
+        System.out.printf("%s modules compiled %s times on %s threads produced the same classes%n", MODULES, RUNS, threads);
+        checkSpeedup(cores, serialNanos, concurrentNanos);
+    }
+
+    // Checks that the thread pool compiled the modules faster than a single thread, which can only be measured with more than one core
+    private static void checkSpeedup(int cores, long serialNanos, long concurrentNanos) {
+        var speedup = (double) serialNanos / Math.max(1, concurrentNanos);
+        System.out.printf("Serial: %d ms, concurrent: %d ms, speedup: %.2fx on %s cores%n", serialNanos / 1_000_000, concurrentNanos / 1_000_000, speedup, cores);
+        if(cores < 2){
+            System.out.println("The speedup isn't checked on a single core");
+            return;
+        }
+
+        var efficiency = Double.parseDouble(System.getProperty("named.parallel.efficiency", String.valueOf(DEFAULT_EFFICIENCY)));
+        var bound = 1 + (Math.min(cores, MAX_MEASURED_CORES) - 1) * efficiency;
+        if(speedup < bound){
+            throw new IllegalStateException("The concurrent compilations were only %.2fx faster than the serial ones on %s cores, the bound is %.2fx".formatted(speedup, cores, bound));
+        }
+    }
+
+    // Every module uses a different corpus, so that concurrent compilations take different paths through the plugin
+    private static List<List<Source>> generateModules() {
+        var corpora = Corpus.values();
+        var results = new ArrayList<List<Source>>(MODULES);
+        for(var module = 0; module < MODULES; module++){
+            results.add(corpora[module % corpora.length].generate(UNITS, CALLS_PER_UNIT, true));
+        }
+
+        return results;
+    }
+
+    private static List<Map<String, byte[]>> compileSerially(List<List<Source>> modules) {
+        var results = new ArrayList<Map<String, byte[]>>(modules.size());
+        for(var module : modules){
+            results.add(compile(module));
+        }
+
+        return results;
+    }
+
+    private static List<Map<String, byte[]>> compileConcurrently(List<List<Source>> modules, int threads) throws InterruptedException {
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<Map<String, byte[]>>>(modules.size());
+            for(var module : modules){
+                futures.add(executor.submit(() -> compile(module)));
+            }
+
+            var results = new ArrayList<Map<String, byte[]>>(modules.size());
+            for(var future : futures){
+                results.add(future.get());
+            }
+
+            return results;
+        }catch (ExecutionException exception){
+            throw new IllegalStateException("A concurrent compilation failed", exception.getCause());
+        }finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // The standard file manager isn't thread safe, so every compilation uses its own compiler
+    private static Map<String, byte[]> compile(List<Source> module) {
+        try(var compiler = new CorpusCompiler()) {
+            return compiler.compile(module, true)
+                .orThrow()
+                .classes();
+        }
+    }
+
+    private static void checkEquals(List<Map<String, byte[]>> expected, List<Map<String, byte[]>> actual) {
+        for(var module = 0; module < expected.size(); module++){
+            var expectedClasses = expected.get(module);
+            var actualClasses = actual.get(module);
+            if(!expectedClasses.keySet().equals(actualClasses.keySet())){
+                throw new IllegalStateException("Module %s produced different classes when compiled concurrently: %s instead of %s".formatted(module, actualClasses.keySet(), expectedClasses.keySet()));
+            }
+
+            for(var entry : expectedClasses.entrySet()){
+                if(!Arrays.equals(entry.getValue(), actualClasses.get(entry.getKey()))){
+                    throw new IllegalStateException("Module %s produced a different %s when compiled concurrently".formatted(module, entry.getKey()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package it.auties.named.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+// Checks that compiling many times in the same JVM doesn't retain memory, like in a Gradle daemon or a persistent worker
+// Every compilation should release its trees and symbols once it's over, so the retained heap must stay flat
+// Run by Checks as the retention check, the bound can be changed using -Dnamed.retention.bound
+final class RetentionCheck {
+    private static final Corpus CORPUS = Corpus.DENSE_OPTIONS;
+    private static final int UNITS = 5;
+    private static final int CALLS_PER_UNIT = 200;
+    private static final int WARMUP_COMPILATIONS = 10;
+    private static final int COMPILATIONS = 50;
+
+    // How many bytes each compilation can retain on average
+    private static final long DEFAULT_BOUND = 64 * 1024;
+
+    static void run() {
+        var bound = Long.parseLong(System.getProperty("named.retention.bound", String.valueOf(DEFAULT_BOUND)));
+        var sources = CORPUS.generate(UNITS, CALLS_PER_UNIT, true);
+        try (var compiler = new CorpusCompiler()) {
+            for(var compilation = 0; compilation < WARMUP_COMPILATIONS; compilation++){
+                compiler.compile(sources, true).orThrow();
+            }
+
+            var initial = getRetainedHeap();
+            for(var compilation = 0; compilation < COMPILATIONS; compilation++){
+                compiler.compile(sources, true).orThrow();
+            }
+
+            var retained = getRetainedHeap() - initial;
+            var retainedPerCompilation = retained / COMPILATIONS;
+            System.out.printf("%s compilations retained %d KB, %d KB per compilation%n", COMPILATIONS, retained / 1024, retainedPerCompilation / 1024);
+            if(retainedPerCompilation > bound){
+                throw new IllegalStateException("Each compilation retained %s bytes on average, the bound is %s bytes".formatted(retainedPerCompilation, bound));
+            }
+        }
+    }
+
+    // Collects the garbage until the used heap is stable and returns it
+    private static long getRetainedHeap() {
+        var memory = ManagementFactory.getMemoryMXBean();
+        var previous = Long.MAX_VALUE;
+        for(var attempt = 0; attempt < 10; attempt++){
+            System.gc();
+            var used = memory.getHeapMemoryUsage().getUsed();
+            if(used >= previous){
+                return used;
+            }
+
+            previous = used;
+        }
+
+        return previous;
+    }
+}
@@ -0,0 +1,60 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures the time needed to compile a single unit with 1k, 10k and 100k call sites, with and without the plugin
+// The scaling check fails if the plugin grows faster than the call sites, this benchmark shows by how much
+// Generated sources, like protobuf or OpenAPI models, contain tens of thousands of invocations in a single file:
+// the difference between the two scores should grow linearly with the call sites, a stage that scans every buffered diagnostic
+// or every overload for each invocation makes it grow much faster
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ScalingBenchmark {
+    @Param({"SPARSE", "DENSE_OPTIONS"})
+    private Corpus corpus;
+
+    @Param({"1000", "10000", "100000"})
+    private int callSites;
+
+    @Param({"true", "false"})
+    private boolean plugin;
+
+    private CorpusCompiler compiler;
+    private List<Source> sources;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.compiler = new CorpusCompiler();
+        this.sources = corpus.generate(1, callSites, plugin);
+        compiler.compile(sources, plugin).orThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compiler.close();
+    }
+
+    @Benchmark
+    public CorpusCompiler.Result compile() {
+        return compiler.compile(sources, plugin);
+    }
+}
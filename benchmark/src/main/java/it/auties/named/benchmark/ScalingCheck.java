@@ -0,0 +1,131 @@
+package it.auties.named.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Checks that the work done by the plugin grows linearly with the number of call sites in a unit
+// Generated sources, like protobuf or OpenAPI models, contain tens of thousands of invocations in a single file:
+// a stage that scans every buffered diagnostic or every overload for each invocation makes this check fail
+// The counters of the plugin, like the overloads resolved and the members attributed again, don't depend on the machine,
+// so they can't grow faster than the call sites by more than a small margin
+// The time spent by the plugin is compared between sizes too, with a tolerance large enough to absorb the noise of a shared machine
+// Run by Checks as the scaling check, the time tolerance can be changed using -Dnamed.scaling.tolerance
+final class ScalingCheck {
+    private static final int[] CALL_SITES = {1_000, 10_000, 100_000};
+    private static final List<Corpus> CORPORA = List.of(Corpus.SPARSE, Corpus.DENSE_OPTIONS);
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 2;
+
+    // How much faster than the call sites a counter can grow
+    private static final double COUNTER_TOLERANCE = 1.5;
+
+    // How much faster than the call sites the time spent by the plugin can grow
+    private static final double DEFAULT_TIME_TOLERANCE = 4;
+
+    private static final Pattern STAGE_PATTERN = Pattern.compile("\"(\\w+)\": \\{\"count\": \\d+, \"wallNanos\": (\\d+)");
+    private static final Pattern COUNTER_PATTERN = Pattern.compile("\"(\\w+)\": (\\d+)");
+    private static final String COUNTERS_KEY = "\"counters\"";
+
+    // The attribution done by javac while the diagnostics are buffered is measured, but it's not done by the plugin
+    private static final String JAVAC_STAGE = "cachedAttribution";
+
+    static void run() {
+        var tolerance = Double.parseDouble(System.getProperty("named.scaling.tolerance", String.valueOf(DEFAULT_TIME_TOLERANCE)));
+        var failures = new ArrayList<String>();
+        try (var compiler = new CorpusCompiler()) {
+            for(var corpus : CORPORA) {
+                check(compiler, corpus, tolerance, failures);
+            }
+        }
+
+        if(!failures.isEmpty()){
+            throw new IllegalStateException("The plugin doesn't scale linearly:%n%s".formatted(String.join(System.lineSeparator(), failures)));
+        }
+    }
+
+    // Compiles a unit of each size and compares the counters and the time spent by the plugin for consecutive sizes
+    private static void check(CorpusCompiler compiler, Corpus corpus, double tolerance, List<String> failures) {
+        for(var run = 0; run < WARMUP_RUNS; run++){
+            measure(compiler, corpus, CALL_SITES[0]);
+        }
+
+        System.out.printf("%-15s %12s %12s %12s %8s%n", "Corpus", "Call sites", "Diagnostics", "Plugin (ms)", "Growth");
+        Measurement previous = null;
+        for(var callSites : CALL_SITES){
+            var measurement = measure(compiler, corpus, callSites);
+            for(var run = 1; run < RUNS; run++){
+                measurement = measurement.fastest(measure(compiler, corpus, callSites));
+            }
+
+            var growth = previous == null ? 1 : (double) measurement.pluginNanos() / Math.max(1, previous.pluginNanos());
+            System.out.printf("%-15s %12d %12d %12.1f %8.1f%n", corpus, callSites, measurement.counter("diagnosticsBuffered"), measurement.pluginNanos() / 1e6, growth);
+            if(previous != null){
+                var sizeGrowth = (double) callSites / previous.callSites();
+                var failed = false;
+                for(var counter : measurement.counters().entrySet()){
+                    var counterGrowth = (double) counter.getValue() / Math.max(1, previous.counter(counter.getKey()));
+                    if(counterGrowth > sizeGrowth * COUNTER_TOLERANCE){
+                        failures.add("%s: %s -> %s call sites grew %s %.1fx, the bound is %.1fx".formatted(corpus, previous.callSites(), callSites, counter.getKey(), counterGrowth, sizeGrowth * COUNTER_TOLERANCE));
+                        failed = true;
+                    }
+                }
+
+                if(growth > sizeGrowth * tolerance){
+                    failures.add("%s: %s -> %s call sites grew the plugin time %.1fx, the bound is %.1fx".formatted(corpus, previous.callSites(), callSites, growth, sizeGrowth * tolerance));
+                    failed = true;
+                }
+
+                // Larger units would only take longer to fail
+                if(failed){
+                    return;
+                }
+            }
+
+            previous = measurement;
+        }
+    }
+
+    // Compiles a single unit with the provided number of named call sites and reads the metrics written by the plugin
+    private static Measurement measure(CorpusCompiler compiler, Corpus corpus, int callSites) {
+        try {
+            var report = Files.createTempFile("named-metrics", ".json");
+            try {
+                compiler.compile(corpus.generate(1, callSites, true), true, "metrics=%s".formatted(report))
+                    .orThrow();
+                var json = Files.readString(report);
+                var pluginNanos = STAGE_PATTERN.matcher(json)
+                    .results()
+                    .filter(result -> !result.group(1).equals(JAVAC_STAGE))
+                    .mapToLong(result -> Long.parseLong(result.group(2)))
+                    .sum();
+                var counters = new LinkedHashMap<String, Long>();
+                COUNTER_PATTERN.matcher(json.substring(json.indexOf(COUNTERS_KEY)))
+                    .results()
+                    .forEach(result -> counters.put(result.group(1), Long.parseLong(result.group(2))));
+                return new Measurement(callSites, counters, pluginNanos);
+            }finally {
+                Files.deleteIfExists(report);
+            }
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot measure %s with %s call sites".formatted(corpus, callSites), exception);
+        }
+    }
+
+    // The work done and the time spent by the plugin to compile a unit
+    // The counters are the same for every run with the same sources, so only the time changes between runs
+    private record Measurement(int callSites, Map<String, Long> counters, long pluginNanos) {
+        private long counter(String name) {
+            return counters.getOrDefault(name, 0L);
+        }
+
+        private Measurement fastest(Measurement other) {
+            return other.pluginNanos() < pluginNanos ? other : this;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Checks that the default values moved to the holders and providers of a library keep working for the callers compiled separately, against another version of the library
+// A library is compiled with the plugin, then a consumer that omits its parameters or names them is compiled against it
+// The consumer must read the right values both from that library and from a new version that declares its members in another order and adds new ones,
+// as a consumer isn't recompiled when a library it depends on is updated
+// Invariant default values must also be evaluated once, no matter how many times the consumer omits them
+// Run by Checks as the separate compilation check
+final class SeparateCompilationCheck {
+    private static final String LIBRARY_CLASS = "library.Defaults";
+    private static final String CONSUMER_CLASS = "consumer.Consumer";
+    private static final int INVOCATIONS = 16;
+
+    // The arguments used to compile the library
+    private static final String[] LIBRARY_ARGUMENTS = {"parameters", "providers"};
+
+    // The members of the library, how the consumer invokes them, the value they must return and whether it's invariant
+    // Invocations without named arguments are left to javac, so each member has a required parameter that the consumer names
+    // Provided values invoke a method that isn't visible to the consumer, so it can only compile if they are moved to a provider
+    // Constants are the empty array of an omitted array parameter and boxed literals
+    private static final List<Member> MEMBERS = List.of(
+        new Member("public static int first(String key, @Option(value = Defaults.evaluate(1000), invariant = true) int value)", "Defaults.first(key = \"first\")", 1000, true),
+        new Member("public static int second(String key, @Option(value = Defaults.evaluate(2000), invariant = true) int value)", "Defaults.second(key = \"second\")", 2000, true),
+        new Member("public static int first(String key, String suffix, @Option(value = Defaults.evaluate(3000), invariant = true) int value)", "Defaults.first(key = \"first\", suffix = \"overload\")", 3000, true),
+        new Member("public static int provided(String key, @Option(Defaults.compute(4000)) int value)", "Defaults.provided(key = \"provided\")", 4000, false),
+        new Member("public static int provided(String key, String suffix, @Option(Defaults.compute(5000)) int value)", "Defaults.provided(key = \"provided\", suffix = \"overload\")", 5000, false),
+        new Member("public static int constant(String key, @Option(1000) Integer value)", "Defaults.constant(key = \"constant\")", 1000, false),
+        new Member("public static int array(String key, @Option int[] value)", "Defaults.array(key = \"array\")", 0, false)
+    );
+
+    // The members that only the new version of the library declares, before all the others
+    private static final List<Member> ADDED_MEMBERS = List.of(
+        new Member("public static int added(String key, @Option(value = Defaults.evaluate(-1), invariant = true) int value)", "Defaults.added(key = \"added\")", -1, true),
+        new Member("public static int addedProvided(String key, @Option(Defaults.compute(-2)) int value)", "Defaults.addedProvided(key = \"added\")", -2, false),
+        new Member("public static int addedConstant(String key, @Option(-1000) Integer value)", "Defaults.addedConstant(key = \"added\")", -1000, false)
+    );
+
+    static void run() throws IOException {
+        var directory = Files.createTempDirectory("named-separate");
+        try(var compiler = new CorpusCompiler()) {
+            var library = compiler.compile(List.of(generateLibrary(MEMBERS)), true, LIBRARY_ARGUMENTS)
+                .orThrow()
+                .classes();
+            var libraryPath = directory.resolve("library");
+            write(libraryPath, library);
+            Map<String, byte[]> consumer;
+            try(var consumerCompiler = new CorpusCompiler(List.of(libraryPath))) {
+                consumer = consumerCompiler.compile(List.of(generateConsumer()), true)
+                    .orThrow()
+                    .classes();
+            }
+
+            var reordered = new ArrayList<>(MEMBERS);
+            Collections.reverse(reordered);
+            reordered.addAll(0, ADDED_MEMBERS);
+            var updatedLibrary = compiler.compile(List.of(generateLibrary(reordered)), true, LIBRARY_ARGUMENTS)
+                .orThrow()
+                .classes();
+            check("library", library, consumer);
+            check("updated library", updatedLibrary, consumer);
+        }finally {
+            delete(directory);
+        }
+    }
+
+    // Runs the consumer against a version of the library
+    private static void check(String name, Map<String, byte[]> library, Map<String, byte[]> consumer) {
+        var classes = new TreeMap<>(library);
+        classes.putAll(consumer);
+        var consumerClass = new CorpusCompiler.Result(true, List.of(), classes).loadClass(CONSUMER_CLASS);
+        var expected = MEMBERS.stream()
+            .mapToInt(Member::value)
+            .toArray();
+        var invariants = MEMBERS.stream()
+            .filter(Member::invariant)
+            .count();
+        try {
+            var values = consumerClass.getMethod("values");
+            for(var invocation = 0; invocation < INVOCATIONS; invocation++){
+                var actual = (int[]) values.invoke(null);
+                if(!Arrays.equals(expected, actual)){
+                    throw new IllegalStateException("The consumer read %s from the %s instead of %s".formatted(Arrays.toString(actual), name, Arrays.toString(expected)));
+                }
+            }
+
+            var evaluations = consumerClass.getClassLoader()
+                .loadClass(LIBRARY_CLASS)
+                .getField("evaluations")
+                .getInt(null);
+            if(evaluations != invariants){
+                throw new IllegalStateException("The %s evaluated its %s invariant default values %s times".formatted(name, invariants, evaluations));
+            }
+        }catch (NoSuchMethodException | NoSuchFieldException | ClassNotFoundException | IllegalAccessException | InvocationTargetException exception){
+            throw new IllegalStateException("Cannot run the consumer against the %s".formatted(name), exception);
+        }
+
+        System.out.printf("The consumer read %s from the %s%n", Arrays.toString(expected), name);
+    }
+
+    private static Source generateLibrary(List<Member> members) {
+        var builder = new StringBuilder("""
+            package library;
+
+            import it.auties.named.annotation.Option;
+
+            public class Defaults {
+                public static int evaluations;
+
+                static int evaluate(int value) {
+                    evaluations++;
+                    return value;
+                }
+
+                static int compute(int value) {
+                    return value;
+                }
+
+                static int result(int value) {
+                    return value;
+                }
+
+                static int result(int[] values) {
+                    return values.length;
+                }
+
+            """);
+        for(var member : members){
+            builder.append("    ")
+                .append(member.declaration())
+                .append(" {\n        return result(value);\n    }\n\n");
+        }
+
+        return new Source(LIBRARY_CLASS, builder.append("}\n").toString());
+    }
+
+    private static Source generateConsumer() {
+        var invocations = MEMBERS.stream()
+            .map(Member::invocation)
+            .toList();
+        var content = """
+            package consumer;
+
+            import library.Defaults;
+
+            public class Consumer {
+                public static int[] values() {
+                    return new int[]{%s};
+                }
+            }
+            """.formatted(String.join(", ", invocations));
+        return new Source(CONSUMER_CLASS, content);
+    }
+
+    private static void write(Path directory, Map<String, byte[]> classes) throws IOException {
+        for(var entry : classes.entrySet()){
+            var file = directory.resolve("%s.class".formatted(entry.getKey().replace('.', '/')));
+            Files.createDirectories(file.getParent());
+            Files.write(file, entry.getValue());
+        }
+    }
+
+    private static void delete(Path directory) {
+        try(var files = Files.walk(directory)) {
+            for(var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator){
+                Files.deleteIfExists(file);
+            }
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot delete %s".formatted(directory), exception);
+        }
+    }
+
+    private record Member(String declaration, String invocation, int value, boolean invariant) {
+
+    }
+}
@@ -0,0 +1,48 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures the time needed by the first compilation of a small module in a fresh JVM, with and without the plugin
+// Every fork compiles exactly once, so the score includes loading javac and the plugin, opening javac's packages and the interpreter:
+// this is the fixed cost paid by every javac process in a build made of many small modules
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+    static final int UNITS = 2;
+    static final int CALLS_PER_UNIT = 20;
+
+    @Param({"true", "false"})
+    private boolean plugin;
+
+    private List<Source> sources;
+
+    @Setup
+    public void setup() {
+        this.sources = Corpus.SPARSE.generate(UNITS, CALLS_PER_UNIT, plugin);
+    }
+
+    @Benchmark
+    public CorpusCompiler.Result compile() {
+        try(var compiler = new CorpusCompiler()) {
+            return compiler.compile(sources, plugin)
+                .orThrow();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package it.auties.named.benchmark;
+
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import com.sun.tools.javac.tree.JCTree.JCNewClass;
+import com.sun.tools.javac.tree.JCTree.JCPolyExpression;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.util.List;
+import it.auties.named.plugin.CandidatesScanner;
+import it.auties.named.plugin.NamedParameterTransformer;
+import it.auties.named.util.Diagnostics;
+import it.auties.named.util.MethodSignatures;
+import it.auties.named.util.Metrics;
+import it.auties.named.util.Overloads;
+import it.auties.named.util.Reflection;
+import it.auties.named.util.Tracer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures the time and the allocations needed to translate a single invocation
+// The unit is parsed and attributed by javac once, then every operation restores the original invocations and translates them again
+// The score is reported per invocation, run with -prof gc to get the bytes allocated per invocation
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+// The benchmark links against javac's internals before the plugin can open them
+@Fork(value = 1, jvmArgsAppend = {
+    "--add-exports", "jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+    "--add-exports", "jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+    "--add-exports", "jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+    "--add-exports", "jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED"
+})
+public class TranslateBenchmark {
+    static final int CALLS = 1000;
+
+    @Param
+    private Corpus corpus;
+
+    private CorpusCompiler compiler;
+    private NamedParameterTransformer transformer;
+    private JCCompilationUnit compilationUnit;
+    private Invocation[] invocations;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        // The transformer is used without the plugin, which is what opens the javac packages reflectively
+        Reflection.openJavac();
+        this.compiler = new CorpusCompiler();
+        var task = (BasicJavacTask) compiler.createTask(corpus.generate(1, CALLS, true), diagnostic -> {});
+        var context = task.getContext();
+        var metrics = new Metrics(false);
+        var diagnostics = new Diagnostics(context, metrics);
+        var signatures = new MethodSignatures(context, metrics);
+        var overloads = new Overloads(context, signatures, metrics);
+        this.transformer = new NamedParameterTransformer(context, diagnostics, signatures, overloads, new Tracer(null), metrics, false);
+
+        // Named arguments are left erroneous by javac, like they are when the plugin translates a unit
+        // The @Option default values are encoded right after parsing, like the plugin does
+        var candidatesScanner = new CandidatesScanner(context, false);
+        this.compilationUnit = (JCCompilationUnit) task.parse().iterator().next();
+        candidatesScanner.scan(compilationUnit);
+        task.analyze();
+        this.invocations = findInvocations(compilationUnit);
+    }
+
+    private Invocation[] findInvocations(JCCompilationUnit compilationUnit) {
+        var results = new ArrayList<Invocation>();
+        new TreeScanner() {
+            @Override
+            public void visitApply(JCMethodInvocation invocation) {
+                results.add(new Invocation(invocation, invocation.args, TreeInfo.symbol(invocation.meth), invocation.meth.type, invocation.type));
+                super.visitApply(invocation);
+            }
+
+            @Override
+            public void visitNewClass(JCNewClass initialization) {
+                results.add(new Invocation(initialization, initialization.args, initialization.constructor, initialization.constructorType, initialization.type));
+                super.visitNewClass(initialization);
+            }
+        }.scan(compilationUnit);
+        return results.toArray(Invocation[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compiler.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public JCCompilationUnit translate() {
+        for(var invocation : invocations){
+            invocation.restore();
+        }
+
+        transformer.translate(compilationUnit);
+        return compilationUnit;
+    }
+
+    // The state of an invocation after javac attributed it
+    private record Invocation(JCPolyExpression expression, List<JCExpression> arguments, Symbol symbol, Type symbolType, Type type) {
+        private void restore() {
+            if(expression instanceof JCMethodInvocation invocation){
+                invocation.args = arguments;
+                TreeInfo.setSymbol(invocation.meth, symbol);
+                invocation.meth.type = symbolType;
+                invocation.type = type;
+                return;
+            }
+
+            var initialization = (JCNewClass) expression;
+            initialization.args = arguments;
+            initialization.constructor = symbol;
+            initialization.constructorType = symbolType;
+            initialization.type = type;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package it.auties.named.benchmark;
+
+import it.auties.named.benchmark.Corpus.Source;
+import it.auties.named.worker.NamedWorker;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+// Checks that a persistent worker, like Bazel runs it, compiles the same build many times to the same classes as a fresh javac process
+// The worker receives the same build many times over its JSON protocol: every build must succeed and produce the classes of the fresh process,
+// so no state of a build leaks into the next one
+// Run by Checks as the worker check, StartupBenchmark and CompileBenchmark measure the cold and the warm compilations that the worker saves
+final class WorkerCheck {
+    private static final int UNITS = 5;
+    private static final int CALLS_PER_UNIT = 200;
+    private static final int WORKER_BUILDS = 5;
+    private static final Pattern EXIT_CODE = Pattern.compile("\"exitCode\":(-?\\d+)");
+
+    static void run() throws IOException, InterruptedException {
+        var directory = Files.createTempDirectory("named-worker");
+        try {
+            var sources = writeSources(directory);
+            var processOutput = directory.resolve("process");
+            var process = new ProcessBuilder(createCommand(createArguments(sources, processOutput)))
+                .inheritIO()
+                .start();
+            if(process.waitFor() != 0){
+                throw new IllegalStateException("The build in a fresh process failed");
+            }
+
+            var expected = readClasses(processOutput);
+            var worker = new ProcessBuilder(createCommand(List.of("--persistent_worker")))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+            try(var requests = new OutputStreamWriter(worker.getOutputStream(), StandardCharsets.UTF_8);
+                var responses = new BufferedReader(new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8))) {
+                for(var build = 0; build < WORKER_BUILDS; build++){
+                    var output = directory.resolve("worker%s".formatted(build));
+                    requests.write(createRequest(createArguments(sources, output), build + 1));
+                    requests.flush();
+                    checkResponse(responses.readLine(), build);
+                    checkEquals(expected, readClasses(output), build);
+                }
+            }
+
+            if(worker.waitFor() != 0){
+                throw new IllegalStateException("The worker exited with code %s".formatted(worker.exitValue()));
+            }
+
+            System.out.printf("%s builds of the worker produced the same classes as a fresh process%n", WORKER_BUILDS);
+        }finally {
+            delete(directory);
+        }
+    }
+
+    // Every corpus is part of the build, so that the worker runs through every path of the plugin
+    private static List<Path> writeSources(Path directory) throws IOException {
+        var results = new ArrayList<Path>();
+        for(var corpus : Corpus.values()){
+            for(var source : corpus.generate(UNITS, CALLS_PER_UNIT, true)){
+                results.add(writeSource(directory.resolve("src"), source));
+            }
+        }
+
+        return results;
+    }
+
+    private static Path writeSource(Path directory, Source source) throws IOException {
+        var path = directory.resolve("%s.java".formatted(source.className().replace('.', '/')));
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, source.content());
+    }
+
+    private static List<String> createArguments(List<Path> sources, Path output) {
+        var results = new ArrayList<String>();
+        results.add("-proc:none");
+        results.add("-implicit:none");
+        results.add("-classpath");
+        results.add(CorpusCompiler.findClassPath().toString());
+        results.add("-d");
+        results.add(output.toString());
+        results.add("-Xplugin:named");
+        sources.forEach(source -> results.add(source.toString()));
+        return results;
+    }
+
+    private static List<String> createCommand(List<String> arguments) {
+        var results = new ArrayList<String>();
+        results.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        results.add("-classpath");
+        results.add(System.getProperty("java.class.path"));
+        results.add(NamedWorker.class.getName());
+        results.addAll(arguments);
+        return results;
+    }
+
+    private static String createRequest(List<String> arguments, int requestId) {
+        var quoted = arguments.stream()
+            .map(argument -> "\"%s\"".formatted(argument.replace("\\", "\\\\").replace("\"", "\\\"")))
+            .toList();
+        return "{\"arguments\":[%s],\"requestId\":%s}\n".formatted(String.join(",", quoted), requestId);
+    }
+
+    private static void checkResponse(String response, int build) {
+        if(response == null){
+            throw new IllegalStateException("The worker closed its output before answering build %s".formatted(build));
+        }
+
+        var matcher = EXIT_CODE.matcher(response);
+        if(!matcher.find() || !matcher.group(1).equals("0")){
+            throw new IllegalStateException("Build %s of the worker failed: %s".formatted(build, response));
+        }
+    }
+
+    private static Map<String, byte[]> readClasses(Path directory) throws IOException {
+        try(var paths = Files.walk(directory)) {
+            var results = new TreeMap<String, byte[]>();
+            for(var path : paths.filter(Files::isRegularFile).toList()){
+                results.put(directory.relativize(path).toString(), Files.readAllBytes(path));
+            }
+
+            return results;
+        }
+    }
+
+    private static void checkEquals(Map<String, byte[]> expected, Map<String, byte[]> actual, int build) {
+        if(!expected.keySet().equals(actual.keySet())){
+            throw new IllegalStateException("Build %s of the worker produced %s instead of %s".formatted(build, actual.keySet(), expected.keySet()));
+        }
+
+        for(var entry : expected.entrySet()){
+            if(!Arrays.equals(entry.getValue(), actual.get(entry.getKey()))){
+                throw new IllegalStateException("Build %s of the worker produced a different %s".formatted(build, entry.getKey()));
+            }
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try(var paths = Files.walk(directory)) {
+            for(var path : paths.sorted(Comparator.reverseOrder()).toList()){
+                Files.delete(path);
+            }
+        }catch (UncheckedIOException exception){
+            throw exception.getCause();
+        }
+    }
+}
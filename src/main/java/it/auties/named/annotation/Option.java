@@ -5,10 +5,16 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+// The default value is written to the class file, so that named invocations can omit the parameter when the method is compiled
 @Target({ElementType.PARAMETER})
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 public @interface Option {
     String DEFAULT_VALUE = "<default>";
 
     String value() default DEFAULT_VALUE;
+
+    // Whether the default value is the same for every invocation
+    // If true, the default value is evaluated once, the first time it's needed, and every invocation that omits the parameter reads the cached value
+    // The value is evaluated in a static context of the class that declares the method, so it can't depend on the other parameters or on instance members
+    boolean invariant() default false;
 }
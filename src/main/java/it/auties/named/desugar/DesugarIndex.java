@@ -0,0 +1,89 @@
+package it.auties.named.desugar;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Remembers the summary of every source file desugared by the last run, keyed by its path relative to the source root
+// The index is a text file with one line per source file, written to the output root once every file was desugared
+// The configuration of the run is written in the header: an index written with different options, or in another format, is ignored like it didn't exist
+final class DesugarIndex {
+    private static final String HEADER = "named-desugar 1 ";
+    private static final String SEPARATOR = "\t";
+    private static final String NAMES_SEPARATOR = ",";
+    private static final int FIELDS = 7;
+
+    private DesugarIndex() {
+
+    }
+
+    // Reads the summaries written by the last run, or returns no summary if the index can't be read or was written with another configuration
+    static Map<String, SourceSummary> read(Path path, String configuration) {
+        try {
+            var lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            if(lines.isEmpty() || !lines.get(0).equals(HEADER + configuration)){
+                return Map.of();
+            }
+
+            var results = new HashMap<String, SourceSummary>();
+            for(var line : lines.subList(1, lines.size())){
+                var fields = line.split(SEPARATOR, -1);
+                if(fields.length != FIELDS){
+                    return Map.of();
+                }
+
+                results.put(fields[0], new SourceSummary(
+                        Long.parseUnsignedLong(fields[1], 16),
+                        Long.parseUnsignedLong(fields[2], 16),
+                        fields[3].equals("1"),
+                        readNames(fields[4]),
+                        readNames(fields[5]),
+                        readNames(fields[6])
+                ));
+            }
+
+            return results;
+        }catch (IOException | NumberFormatException exception){
+            return Map.of();
+        }
+    }
+
+    private static Set<String> readNames(String field) {
+        return field.isEmpty() ? Set.of() : Set.copyOf(Arrays.asList(field.split(NAMES_SEPARATOR)));
+    }
+
+    // Writes the summaries to a temporary file that then replaces the index, so a run that is interrupted never leaves a truncated index
+    static void write(Path path, String configuration, Map<String, SourceSummary> summaries) throws IOException {
+        var lines = new ArrayList<String>();
+        lines.add(HEADER + configuration);
+        for(var entry : new TreeMap<>(summaries).entrySet()){
+            var summary = entry.getValue();
+            lines.add(String.join(SEPARATOR,
+                    entry.getKey(),
+                    Long.toHexString(summary.contentHash()),
+                    Long.toHexString(summary.apiHash()),
+                    summary.named() ? "1" : "0",
+                    String.join(NAMES_SEPARATOR, summary.declaredNames()),
+                    String.join(NAMES_SEPARATOR, summary.referencedNames()),
+                    String.join(NAMES_SEPARATOR, summary.optionalNames())
+            ));
+        }
+
+        var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporary, lines, StandardCharsets.UTF_8);
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }catch (AtomicMoveNotSupportedException exception){
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
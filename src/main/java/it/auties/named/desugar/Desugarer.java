@@ -0,0 +1,441 @@
+package it.auties.named.desugar;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import it.auties.named.plugin.NamedParameterPlugin;
+import it.auties.named.plugin.PluginArguments;
+import it.auties.named.util.Reflection;
+import it.auties.named.util.SourceIndex;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+
+// Rewrites a source tree that uses named and optional arguments into plain Java, so that it can be compiled without the plugin
+// Every source file is attributed with the plugin like in a normal compilation, then the invocations it translated are written back with positional arguments
+// and the default values filled in, the @Option annotations are removed and the holders or providers of the default values are added to their classes
+// The files are split in shards that are desugared in parallel on a fork join pool: every shard is compiled by its own javac task, with its own file manager and its own plugin,
+// and reads the rest of the tree from the source path
+// Runs are incremental: the summary of every file is kept in an index in the output root, so a file is desugared again only if its content changed
+// or if another file changed the declarations of a name it references; all the other outputs are left untouched
+public final class Desugarer {
+    // The file where the summaries of the last run are kept, in the output root
+    private static final String INDEX_FILE = ".named-desugar";
+    private static final String JAVA_EXTENSION = ".java";
+    private static final String ENGINE_ARGUMENT = "%s=%s".formatted(PluginArguments.ENGINE, PluginArguments.ENTER_ENGINE);
+    private static final String ENCODING_OPTION = "-encoding";
+    private static final String SOURCE_PATH_OPTION = "-sourcepath";
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_COMMAND_LINE = 2;
+
+    private final JavaCompiler compiler;
+    private final Path sources;
+    private final Path output;
+    private final List<String> options;
+    private final List<String> pluginArguments;
+    private final int parallelism;
+    private final Charset charset;
+
+    public Desugarer(Path sources, Path output) {
+        this(sources, output, List.of(), List.of(), Runtime.getRuntime().availableProcessors());
+    }
+
+    // The options are passed to javac, the arguments to the plugin
+    // Named invocations are translated by the enter engine unless another one is chosen: the enter engine also resolves the methods inherited or imported from other files
+    public Desugarer(Path sources, Path output, List<String> options, List<String> pluginArguments, int parallelism) {
+        if(parallelism < 1){
+            throw new IllegalArgumentException("The parallelism must be positive: %s".formatted(parallelism));
+        }
+
+        this.sources = sources.toAbsolutePath().normalize();
+        this.output = output.toAbsolutePath().normalize();
+        if(this.output.startsWith(this.sources) || this.sources.startsWith(this.output)){
+            throw new IllegalArgumentException("The output root can't contain or be contained by the source root: %s and %s".formatted(sources, output));
+        }
+
+        // Opens Javac's packages once, for all the shards
+        Reflection.openJavac();
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        this.options = List.copyOf(options);
+        this.pluginArguments = pluginArguments.stream().anyMatch(argument -> argument.startsWith(PluginArguments.ENGINE + "=")) ? List.copyOf(pluginArguments)
+                : Stream.concat(pluginArguments.stream(), Stream.of(ENGINE_ARGUMENT)).toList();
+        this.parallelism = parallelism;
+        this.charset = getCharset(options);
+    }
+
+    // Javac decodes the sources with the charset of -encoding or with the default one, the outputs are written with the same charset
+    private static Charset getCharset(List<String> options) {
+        var index = options.indexOf(ENCODING_OPTION);
+        return index == -1 || index + 1 >= options.size() ? Charset.defaultCharset() : Charset.forName(options.get(index + 1));
+    }
+
+    public static void main(String... args) throws IOException {
+        var options = new ArrayList<String>();
+        var pluginArguments = new ArrayList<String>();
+        var roots = new ArrayList<Path>();
+        var parallelism = Runtime.getRuntime().availableProcessors();
+        var full = false;
+        for(var index = 0; index < args.length; index++){
+            var argument = args[index];
+            switch (argument) {
+                case "-classpath", "-cp", "--class-path", "--module-path", "--release", ENCODING_OPTION -> {
+                    if(index + 1 >= args.length){
+                        exitWithUsage("Missing value for %s".formatted(argument));
+                    }
+
+                    options.add(argument);
+                    options.add(args[++index]);
+                }
+                case "-j" -> {
+                    if(index + 1 >= args.length){
+                        exitWithUsage("Missing value for -j");
+                    }
+
+                    try {
+                        parallelism = Integer.parseInt(args[++index]);
+                    }catch (NumberFormatException exception){
+                        exitWithUsage("Invalid value for -j: %s".formatted(args[index]));
+                    }
+                }
+                case "--providers" -> pluginArguments.add(PluginArguments.PROVIDERS);
+                case "--attribution" -> pluginArguments.add("%s=%s".formatted(PluginArguments.ENGINE, PluginArguments.ATTRIBUTION_ENGINE));
+                case "--full" -> full = true;
+                default -> {
+                    if(argument.startsWith("-")){
+                        exitWithUsage("Unknown option: %s".formatted(argument));
+                    }
+
+                    roots.add(Path.of(argument));
+                }
+            }
+        }
+
+        if(roots.size() != 2){
+            exitWithUsage("Expected a source root and an output root");
+        }
+
+        Report report;
+        try {
+            report = new Desugarer(roots.get(0), roots.get(1), options, pluginArguments, parallelism).desugar(full);
+        }catch (IllegalArgumentException exception){
+            exitWithUsage(exception.getMessage());
+            return;
+        }
+
+        report.errors().forEach(System.err::println);
+        System.out.println(report);
+        if(!report.errors().isEmpty()){
+            System.exit(EXIT_ERROR);
+        }
+    }
+
+    private static void exitWithUsage(String message) {
+        System.err.println("error: %s".formatted(message));
+        System.err.println("Usage: java %s [-classpath <path>] [--module-path <path>] [--release <version>] [-encoding <charset>] [-j <shards>] [--providers] [--attribution] [--full] <source root> <output root>"
+                .formatted(Desugarer.class.getName()));
+        System.exit(EXIT_COMMAND_LINE);
+    }
+
+    // Desugars the files that changed since the last run
+    public Report desugar() throws IOException {
+        return desugar(false);
+    }
+
+    // Desugars the files that changed since the last run, or all of them if full is true
+    // The outputs of the files that fail to compile aren't written and the files aren't indexed, so the next run tries again
+    public Report desugar(boolean full) throws IOException {
+        var start = System.nanoTime();
+        var configuration = "%s | %s".formatted(String.join(" ", options), String.join(" ", pluginArguments));
+        var indexPath = output.resolve(INDEX_FILE);
+        var previous = full ? Map.<String, SourceSummary>of() : DesugarIndex.read(indexPath, configuration);
+        var files = listSources();
+        var errors = Collections.synchronizedList(new ArrayList<String>());
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            // The hash of the raw bytes, so that it doesn't depend on the charset
+            var hashes = new HashMap<String, Long>();
+            var hashResults = invokeAll(pool, files.stream()
+                    .map(file -> (Callable<Long>) () -> SourceIndex.hash(new String(Files.readAllBytes(sources.resolve(file)), StandardCharsets.ISO_8859_1)))
+                    .toList());
+            for(var index = 0; index < files.size(); index++){
+                hashes.put(files.get(index), hashResults.get(index));
+            }
+
+            // Only the files whose content changed, or whose output is missing, are parsed again
+            var changed = files.stream()
+                    .filter(file -> !previous.containsKey(file) || previous.get(file).contentHash() != hashes.get(file) || !Files.exists(output.resolve(file)))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            var summaries = new HashMap<String, SourceSummary>();
+            for(var shard : invokeAll(pool, shard(List.copyOf(changed)).stream().map(shard -> (Callable<Map<String, SourceSummary>>) () -> summarize(shard, hashes, errors)).toList())){
+                summaries.putAll(shard);
+            }
+
+            for(var file : files){
+                if(!changed.contains(file)){
+                    summaries.put(file, previous.get(file));
+                }
+            }
+
+            // The names declared by the files whose api changed, before and after the change
+            var changedNames = new HashSet<String>();
+            var deleted = 0;
+            for(var entry : previous.entrySet()){
+                var summary = summaries.get(entry.getKey());
+                if(summary == null && !hashes.containsKey(entry.getKey())){
+                    Files.deleteIfExists(output.resolve(entry.getKey()));
+                    deleted++;
+                }
+
+                if(summary == null || summary.apiHash() != entry.getValue().apiHash()){
+                    changedNames.addAll(entry.getValue().declaredNames());
+                }
+            }
+
+            for(var file : changed){
+                var summary = summaries.get(file);
+                if(summary != null && (!previous.containsKey(file) || previous.get(file).apiHash() != summary.apiHash())){
+                    changedNames.addAll(summary.declaredNames());
+                }
+            }
+
+            // A file whose content didn't change is desugared again only if it references a name whose declarations changed
+            var optionalNames = new HashSet<String>();
+            summaries.values().forEach(summary -> optionalNames.addAll(summary.optionalNames()));
+            var desugared = new ArrayList<String>();
+            var copied = new ArrayList<String>();
+            for(var file : files){
+                var summary = summaries.get(file);
+                if(summary == null || (!changed.contains(file) && !summary.references(changedNames))){
+                    continue;
+                }
+
+                (summary.isCandidate(optionalNames) ? desugared : copied).add(file);
+            }
+
+            var outputs = new HashMap<String, String>();
+            for(var shard : invokeAll(pool, shard(desugared).stream().map(shard -> (Callable<Map<String, String>>) () -> desugar(shard, errors)).toList())){
+                outputs.putAll(shard);
+            }
+
+            var written = 0;
+            for(var entry : outputs.entrySet()){
+                written += write(entry.getKey(), entry.getValue().getBytes(charset)) ? 1 : 0;
+            }
+
+            for(var file : copied){
+                written += write(file, Files.readAllBytes(sources.resolve(file))) ? 1 : 0;
+            }
+
+            // The files that failed aren't indexed
+            desugared.stream()
+                    .filter(file -> !outputs.containsKey(file))
+                    .forEach(summaries::remove);
+            Files.createDirectories(output);
+            DesugarIndex.write(indexPath, configuration, summaries);
+            var failed = files.size() - summaries.size();
+            return new Report(files.size(), changed.size(), desugared.size(), copied.size(), written, deleted, failed, List.copyOf(errors), (System.nanoTime() - start) / 1_000_000);
+        }finally {
+            pool.shutdown();
+        }
+    }
+
+    // Returns the paths of the source files, relative to the source root and sorted
+    private List<String> listSources() throws IOException {
+        try(var paths = Files.walk(sources)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(JAVA_EXTENSION) && Files.isRegularFile(path))
+                    .map(path -> sources.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Splits files in one shard per thread, balanced by size
+    // Every shard pays for a javac task and for the files it reads from the source path, so there are never more shards than threads
+    private List<List<String>> shard(List<String> files) throws IOException {
+        var sizes = new HashMap<String, Long>();
+        for(var file : files){
+            sizes.put(file, Files.size(sources.resolve(file)));
+        }
+
+        var shards = new ArrayList<List<String>>();
+        var loads = new long[Math.min(parallelism, files.size())];
+        for(var index = 0; index < loads.length; index++){
+            shards.add(new ArrayList<>());
+        }
+
+        var sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(sizes::get, Comparator.reverseOrder()));
+        for(var file : sorted){
+            var lightest = 0;
+            for(var index = 1; index < loads.length; index++){
+                if(loads[index] < loads[lightest]){
+                    lightest = index;
+                }
+            }
+
+            shards.get(lightest).add(file);
+            loads[lightest] += sizes.get(file);
+        }
+
+        return shards;
+    }
+
+    // Parses a shard and summarizes its files
+    // The plugin starts automatically if it's on the class path and changes the trees once they are parsed, so they are summarized before by a listener registered first
+    private Map<String, SourceSummary> summarize(List<String> files, Map<String, Long> hashes, List<String> errors) throws IOException {
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try(var fileManager = compiler.getStandardFileManager(diagnostics, null, charset)) {
+            var task = (JavacTaskImpl) compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromPaths(toPaths(files)));
+            var results = new HashMap<String, SourceSummary>();
+            task.addTaskListener(new TaskListener() {
+                @Override
+                public void finished(TaskEvent event) {
+                    if(event.getKind() == TaskEvent.Kind.PARSE){
+                        var file = toFile(event.getSourceFile());
+                        results.put(file, SourceSummary.of((JCCompilationUnit) event.getCompilationUnit(), hashes.get(file)));
+                    }
+                }
+            });
+            task.parse();
+            for(var failed : reportErrors(diagnostics, errors)){
+                if(failed == null){
+                    return Map.of();
+                }
+
+                results.remove(toFile(failed));
+            }
+
+            return results;
+        }
+    }
+
+    // Desugars a shard in its own javac task
+    private Map<String, String> desugar(List<String> files, List<String> errors) throws IOException {
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try(var fileManager = compiler.getStandardFileManager(diagnostics, null, charset)) {
+            var units = fileManager.getJavaFileObjectsFromPaths(toPaths(files));
+            var inputs = new HashSet<JavaFileObject>();
+            units.forEach(inputs::add);
+            var task = (JavacTaskImpl) compiler.getTask(null, fileManager, diagnostics, getShardOptions(), null, units);
+            var rewriter = new SourceRewriter(inputs);
+            task.addTaskListener(rewriter);
+            new NamedParameterPlugin().init(task, pluginArguments.toArray(String[]::new));
+            var parsed = task.parse();
+            task.analyze(task.enter());
+            var failed = reportErrors(diagnostics, errors);
+            var results = new HashMap<String, String>();
+            for(var unit : parsed){
+                if(!failed.contains(unit.getSourceFile()) && !failed.contains(null)){
+                    results.put(toFile(unit.getSourceFile()), rewriter.rewrite((JCCompilationUnit) unit));
+                }
+            }
+
+            return results;
+        }catch (RuntimeException exception){
+            errors.add("error: cannot desugar %s: %s".formatted(files, exception));
+            return Map.of();
+        }
+    }
+
+    // The rest of the tree is read from the source path, but only the files of the shard are analyzed
+    private List<String> getShardOptions() {
+        var results = new ArrayList<>(options);
+        results.add("-proc:none");
+        results.add("-implicit:none");
+        if(!options.contains(SOURCE_PATH_OPTION) && !options.contains("--source-path")){
+            results.add(SOURCE_PATH_OPTION);
+            results.add(sources.toString());
+        }
+
+        return results;
+    }
+
+    // Reports the errors collected so far and returns the files they were reported in
+    private static Set<JavaFileObject> reportErrors(DiagnosticCollector<JavaFileObject> diagnostics, List<String> errors) {
+        var results = new HashSet<JavaFileObject>();
+        for(var diagnostic : diagnostics.getDiagnostics()){
+            if(diagnostic.getKind() == Diagnostic.Kind.ERROR && results.add(diagnostic.getSource())){
+                errors.add(diagnostic.toString());
+            }
+        }
+
+        return results;
+    }
+
+    private List<Path> toPaths(List<String> files) {
+        return files.stream().map(sources::resolve).toList();
+    }
+
+    private String toFile(JavaFileObject fileObject) {
+        return sources.relativize(Path.of(fileObject.toUri())).toString().replace(sources.getFileSystem().getSeparator(), "/");
+    }
+
+    // Writes an output unless it already has the same content, so unchanged outputs keep their modification time
+    private boolean write(String file, byte[] content) throws IOException {
+        var target = output.resolve(file);
+        if(Files.exists(target) && Arrays.equals(Files.readAllBytes(target), content)){
+            return false;
+        }
+
+        Files.createDirectories(target.getParent());
+        Files.write(target, content);
+        return true;
+    }
+
+    private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) throws IOException {
+        var results = new ArrayList<T>();
+        for(var future : pool.invokeAll(tasks)){
+            try {
+                results.add(future.get());
+            }catch (InterruptedException exception){
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while desugaring", exception);
+            }catch (ExecutionException exception){
+                if(exception.getCause() instanceof IOException ioException){
+                    throw ioException;
+                }
+
+                if(exception.getCause() instanceof UncheckedIOException uncheckedIOException){
+                    throw uncheckedIOException.getCause();
+                }
+
+                throw new IllegalStateException("Cannot desugar", exception.getCause());
+            }
+        }
+
+        return results;
+    }
+
+    // The outcome of a run: how many files were found, changed since the last run, desugared, copied as they are, written, deleted and failed
+    public record Report(int files, int changed, int desugared, int copied, int written, int deleted, int failed, List<String> errors, long elapsedMillis) {
+        @Override
+        public String toString() {
+            return "Named desugarer: %s files, %s changed, %s desugared, %s copied, %s written, %s deleted, %s failed in %s ms"
+                    .formatted(files, changed, desugared, copied, written, deleted, failed, elapsedMillis);
+        }
+    }
+}
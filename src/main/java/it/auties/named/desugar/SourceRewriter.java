@@ -0,0 +1,403 @@
+package it.auties.named.desugar;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.tree.EndPosTable;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCAnnotation;
+import com.sun.tools.javac.tree.JCTree.JCAssign;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCImport;
+import com.sun.tools.javac.tree.JCTree.JCLiteral;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import com.sun.tools.javac.tree.JCTree.JCNewClass;
+import com.sun.tools.javac.tree.JCTree.JCPolyExpression;
+import com.sun.tools.javac.tree.Pretty;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.util.List;
+import it.auties.named.annotation.Option;
+import it.auties.named.util.Annotations;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.tools.JavaFileObject;
+
+// Turns the units translated by the plugin back into source code
+// The source and the trees of every input unit are recorded right after the unit is parsed, before the plugin changes them,
+// so this listener must be registered before the plugin
+// The rewritten source is the original one where only what the plugin changed is replaced:
+// the arguments of the invocations it translated, the @Option annotations and their imports, which are removed, and the members it added to a class
+// Comments and formatting are kept everywhere else, arguments are copied from the original source and only default values and added members are printed from their trees
+final class SourceRewriter implements TaskListener {
+    private static final String OPTION_PACKAGE = Option.class.getPackageName();
+    private static final String OPTION_IMPORT = Option.class.getName();
+    private static final String INDENTATION = "    ";
+
+    private final Set<JavaFileObject> inputs;
+    private final Map<JCCompilationUnit, Snapshot> snapshots;
+
+    SourceRewriter(Set<JavaFileObject> inputs) {
+        this.inputs = inputs;
+        this.snapshots = new IdentityHashMap<>();
+    }
+
+    // The units loaded from the source path aren't rewritten, they are only needed to attribute the inputs
+    @Override
+    public void finished(TaskEvent event) {
+        if(event.getKind() != TaskEvent.Kind.PARSE || !inputs.contains(event.getSourceFile())){
+            return;
+        }
+
+        try {
+            var unit = (JCCompilationUnit) event.getCompilationUnit();
+            snapshots.put(unit, new Snapshot(unit, unit.getSourceFile().getCharContent(true).toString()));
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot read %s".formatted(event.getSourceFile().getName()), exception);
+        }
+    }
+
+    // Returns the source of a unit after the plugin translated it
+    String rewrite(JCCompilationUnit unit) {
+        var snapshot = snapshots.get(unit);
+        if(snapshot == null){
+            throw new IllegalStateException("%s wasn't parsed by this task".formatted(unit.getSourceFile().getName()));
+        }
+
+        return snapshot.rewrite();
+    }
+
+    private static final class Snapshot {
+        private final JCCompilationUnit unit;
+        private final String source;
+        private final EndPosTable endPositions;
+
+        // The arguments of every invocation, the expressions that were arguments or values of named arguments and the members of every class, as parsed
+        private final Map<JCPolyExpression, List<JCExpression>> arguments;
+        private final Set<JCTree> values;
+        private final Map<JCClassDecl, List<JCTree>> members;
+
+        // The @Option annotations and the imports of Option
+        private final java.util.List<JCTree> removals;
+
+        // The edits to the source, sorted by position
+        private final java.util.List<Edit> edits;
+
+        private Snapshot(JCCompilationUnit unit, String source) {
+            this.unit = unit;
+            this.source = source;
+            this.endPositions = unit.endPositions;
+            this.arguments = new IdentityHashMap<>();
+            this.values = Collections.newSetFromMap(new IdentityHashMap<>());
+            this.members = new IdentityHashMap<>();
+            this.removals = new ArrayList<>();
+            this.edits = new ArrayList<>();
+            record();
+        }
+
+        private void record() {
+            for(var importDeclaration : unit.getImports()){
+                var name = importDeclaration.qualid.toString();
+                if(!importDeclaration.staticImport && (name.equals(OPTION_IMPORT) || name.equals(OPTION_PACKAGE + ".*"))){
+                    removals.add(importDeclaration);
+                }
+            }
+
+            new TreeScanner() {
+                @Override
+                public void visitClassDef(JCClassDecl classDeclaration) {
+                    members.put(classDeclaration, classDeclaration.defs);
+                    super.visitClassDef(classDeclaration);
+                }
+
+                @Override
+                public void visitAnnotation(JCAnnotation annotation) {
+                    if(Annotations.isOption(annotation)){
+                        removals.add(annotation);
+                    }
+
+                    super.visitAnnotation(annotation);
+                }
+
+                @Override
+                public void visitApply(JCMethodInvocation invocation) {
+                    recordArguments(invocation, invocation.args);
+                    super.visitApply(invocation);
+                }
+
+                @Override
+                public void visitNewClass(JCNewClass initialization) {
+                    recordArguments(initialization, initialization.args);
+                    super.visitNewClass(initialization);
+                }
+            }.scan(unit);
+        }
+
+        private void recordArguments(JCPolyExpression expression, List<JCExpression> expressionArguments) {
+            arguments.put(expression, expressionArguments);
+            for(var argument : expressionArguments){
+                values.add(argument);
+                if(TreeInfo.skipParens(argument) instanceof JCAssign assignment){
+                    values.add(assignment.rhs);
+                }
+            }
+        }
+
+        private String rewrite() {
+            for(var removal : removals){
+                edits.add(createRemoval(removal));
+            }
+
+            arguments.forEach((expression, originalArguments) -> {
+                var translatedArguments = getArguments(expression);
+                if(!isSame(originalArguments, translatedArguments)){
+                    edits.add(createArgumentsEdit(expression, originalArguments, translatedArguments));
+                }
+            });
+
+            members.forEach((classDeclaration, originalMembers) -> {
+                var addedMembers = classDeclaration.defs.stream()
+                        .filter(member -> !originalMembers.contains(member) && !isGenerated(member))
+                        .toList();
+                if(!addedMembers.isEmpty()){
+                    edits.add(createMembersEdit(classDeclaration, addedMembers));
+                }
+            });
+
+            // Insertions come before the edit that starts at the same position, edits that contain others before them
+            edits.sort(Comparator.comparingInt(Edit::start)
+                    .thenComparing(edit -> edit.start() != edit.end())
+                    .thenComparing(Comparator.comparingInt(Edit::end).reversed()));
+            return render(0, source.length());
+        }
+
+        // Javac adds the default constructors to the trees of the classes when it enters them, but they are implicit in the source
+        private static boolean isGenerated(JCTree member) {
+            return member instanceof JCMethodDecl method && (method.mods.flags & Flags.GENERATEDCONSTR) != 0;
+        }
+
+        private static List<JCExpression> getArguments(JCPolyExpression expression) {
+            return expression instanceof JCMethodInvocation invocation ? invocation.args : ((JCNewClass) expression).args;
+        }
+
+        private static boolean isSame(List<JCExpression> first, List<JCExpression> second) {
+            while (first.nonEmpty() && second.nonEmpty()) {
+                if(first.head != second.head){
+                    return false;
+                }
+
+                first = first.tail;
+                second = second.tail;
+            }
+
+            return first.isEmpty() && second.isEmpty();
+        }
+
+        // Copies a range of the source, applying the edits it contains
+        // An edit replaces an argument list that may contain other edits, which are applied by the edit itself
+        private String render(int from, int to) {
+            var result = new StringBuilder();
+            var cursor = from;
+            for(var index = findFirstEdit(from); index < edits.size(); index++){
+                var edit = edits.get(index);
+                if(edit.start() > to){
+                    break;
+                }
+
+                // The edit of an invocation whose only argument is kept spans the same range as that argument
+                if(edit.start() < cursor || edit.end() > to || (edit.start() == from && edit.end() == to && from != to)){
+                    continue;
+                }
+
+                result.append(source, cursor, edit.start()).append(edit.replacement().get());
+                cursor = edit.end();
+            }
+
+            return result.append(source, cursor, to).toString();
+        }
+
+        // Returns the index of the first edit that starts at a position or after it
+        private int findFirstEdit(int position) {
+            var low = 0;
+            var high = edits.size();
+            while (low < high) {
+                var middle = (low + high) >>> 1;
+                if(edits.get(middle).start() < position){
+                    low = middle + 1;
+                }else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        // Replaces the arguments of an invocation: the original arguments and the values of named arguments are copied from the source, the default values are printed
+        private Edit createArgumentsEdit(JCPolyExpression expression, List<JCExpression> originalArguments, List<JCExpression> translatedArguments) {
+            int start;
+            int end;
+            if(originalArguments.isEmpty()){
+                start = end = findOpenParenthesis(expression) + 1;
+            }else {
+                start = TreeInfo.getStartPos(originalArguments.head);
+                end = TreeInfo.getEndPos(originalArguments.last(), endPositions);
+            }
+
+            return new Edit(start, end, () -> translatedArguments.stream()
+                    .map(argument -> values.contains(argument) ? render(TreeInfo.getStartPos(argument), TreeInfo.getEndPos(argument, endPositions)) : print(argument, false))
+                    .collect(Collectors.joining(", ")));
+        }
+
+        // Finds the parenthesis that opens the arguments of an invocation
+        private int findOpenParenthesis(JCPolyExpression expression) {
+            var callee = expression instanceof JCMethodInvocation invocation ? invocation.meth : ((JCNewClass) expression).clazz;
+            var index = source.indexOf('(', TreeInfo.getEndPos(callee, endPositions));
+            if(index == -1){
+                throw new IllegalStateException("Cannot find the arguments of %s in %s".formatted(expression, unit.getSourceFile().getName()));
+            }
+
+            return index;
+        }
+
+        // Adds members to a class before its closing brace, indented one level more than the brace
+        private Edit createMembersEdit(JCClassDecl classDeclaration, java.util.List<JCTree> addedMembers) {
+            var closingBrace = source.lastIndexOf('}', TreeInfo.getEndPos(classDeclaration, endPositions) - 1);
+            if(closingBrace == -1){
+                throw new IllegalStateException("Cannot find the end of %s in %s".formatted(classDeclaration.name, unit.getSourceFile().getName()));
+            }
+
+            var lineStart = source.lastIndexOf('\n', closingBrace - 1) + 1;
+            var indentation = getIndentation(lineStart) + INDENTATION;
+            var result = new StringBuilder(System.lineSeparator());
+            for(var member : addedMembers){
+                if(member != addedMembers.get(0)){
+                    result.append(System.lineSeparator());
+                }
+
+                var previousLine = "";
+                for(var line : print(member, true).lines().toList()){
+                    // The printer leaves a blank line where it skips the default constructor
+                    if(!line.isBlank()){
+                        result.append(indentation).append(line).append(System.lineSeparator());
+                    }else if(!previousLine.isBlank() && !previousLine.endsWith("{")){
+                        result.append(System.lineSeparator());
+                    }
+
+                    previousLine = line;
+                }
+            }
+
+            var position = source.substring(lineStart, closingBrace).isBlank() ? lineStart : closingBrace;
+            return new Edit(position, position, result::toString);
+        }
+
+        private boolean isLineEnd(int position) {
+            return source.startsWith("\n", position) || source.startsWith("\r\n", position);
+        }
+
+        private int skipLineEnd(int position) {
+            return position + (source.startsWith("\r\n", position) ? 2 : 1);
+        }
+
+        private int findLineEnd(int position) {
+            while (position < source.length() && !isLineEnd(position)) {
+                position++;
+            }
+
+            return position;
+        }
+
+        private String getIndentation(int lineStart) {
+            var end = lineStart;
+            while (end < source.length() && (source.charAt(end) == ' ' || source.charAt(end) == '\t')) {
+                end++;
+            }
+
+            return source.substring(lineStart, end);
+        }
+
+        // Removes an annotation or an import with the blanks that follow it, and with its line if nothing else is on it
+        private Edit createRemoval(JCTree tree) {
+            var start = TreeInfo.getStartPos(tree);
+            var end = TreeInfo.getEndPos(tree, endPositions);
+            if(tree instanceof JCImport){
+                end = source.indexOf(';', end - 1) + 1;
+            }
+
+            while (end < source.length() && (source.charAt(end) == ' ' || source.charAt(end) == '\t')) {
+                end++;
+            }
+
+            var lineStart = source.lastIndexOf('\n', start - 1) + 1;
+            if(source.substring(lineStart, start).isBlank() && isLineEnd(end)){
+                start = lineStart;
+                end = skipLineEnd(end);
+                // A blank line that would follow another one is removed as well
+                var previousLineStart = lineStart == 0 ? -1 : source.lastIndexOf('\n', lineStart - 2) + 1;
+                var nextLineEnd = findLineEnd(end);
+                if(previousLineStart != -1 && source.substring(previousLineStart, lineStart).isBlank() && source.substring(end, nextLineEnd).isBlank() && isLineEnd(nextLineEnd)){
+                    end = skipLineEnd(nextLineEnd);
+                }
+            }
+
+            return new Edit(start, end, () -> "");
+        }
+
+        // Prints a tree as source
+        // Byte and short literals are cast, they would be printed as ints otherwise
+        private static String print(JCTree tree, boolean statement) {
+            var writer = new StringWriter();
+            var pretty = new Pretty(writer, true) {
+                @Override
+                public void visitMethodDef(JCMethodDecl method) {
+                    if(!isGenerated(method)){
+                        super.visitMethodDef(method);
+                    }
+                }
+
+                @Override
+                public void visitLiteral(JCLiteral literal) {
+                    if(literal.typetag != TypeTag.BYTE && literal.typetag != TypeTag.SHORT){
+                        super.visitLiteral(literal);
+                        return;
+                    }
+
+                    try {
+                        print("(%s) %s".formatted(literal.typetag.name().toLowerCase(), literal.value));
+                    }catch (IOException exception){
+                        throw new UncheckedIOException(exception);
+                    }
+                }
+            };
+            try {
+                if(statement){
+                    pretty.printStat(tree);
+                }else {
+                    pretty.printExpr(tree);
+                }
+            }catch (IOException exception){
+                throw new UncheckedIOException(exception);
+            }
+
+            return writer.toString();
+        }
+    }
+
+    // Replaces the source between two positions
+    private record Edit(int start, int end, Supplier<String> replacement) {
+
+    }
+}
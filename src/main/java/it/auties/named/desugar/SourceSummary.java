@@ -0,0 +1,203 @@
+package it.auties.named.desugar;
+
+import static com.sun.tools.javac.tree.TreeInfo.skipParens;
+
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCAnnotation;
+import com.sun.tools.javac.tree.JCTree.JCAssign;
+import com.sun.tools.javac.tree.JCTree.JCBlock;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCImport;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import com.sun.tools.javac.tree.JCTree.JCNewClass;
+import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.util.List;
+import it.auties.named.util.Annotations;
+import it.auties.named.util.SourceIndex;
+import java.util.HashSet;
+import java.util.Set;
+
+// What the desugarer remembers about a source file between two runs, computed from its syntax tree without attributing it
+// The api hash covers the declarations that the named and optional invocations of other files depend on:
+// the classes, their fields and the signatures of their methods with the names and the @Option annotations of the parameters, but not bodies or initializers
+// A file may be rewritten differently only if its content changed or if a file whose api changed declares one of the names it references
+record SourceSummary(long contentHash, long apiHash, boolean named, Set<String> declaredNames, Set<String> referencedNames, Set<String> optionalNames) {
+    private static final String SUPER = "super";
+
+    static SourceSummary of(JCCompilationUnit unit, long contentHash) {
+        var scanner = new SummaryScanner();
+        scanner.scan(unit);
+        return new SourceSummary(
+                contentHash,
+                SourceIndex.hash(scanner.api),
+                scanner.named,
+                Set.copyOf(scanner.declaredNames),
+                Set.copyOf(scanner.referencedNames),
+                Set.copyOf(scanner.optionalNames)
+        );
+    }
+
+    // Whether the plugin may rewrite the file: it contains named arguments or @Option parameters, or it invokes a name that declares an @Option parameter
+    boolean isCandidate(Set<String> optionalNames) {
+        return named || referencedNames.stream().anyMatch(optionalNames::contains);
+    }
+
+    // Whether the file references a name declared by a file whose api changed
+    boolean references(Set<String> names) {
+        return referencedNames.stream().anyMatch(names::contains);
+    }
+
+    private static final class SummaryScanner extends TreeScanner {
+        private final StringBuilder api = new StringBuilder();
+        private final Set<String> declaredNames = new HashSet<>();
+        private final Set<String> referencedNames = new HashSet<>();
+        private final Set<String> optionalNames = new HashSet<>();
+        private boolean named;
+
+        // The depth of the bodies and initializers being scanned, whose content isn't part of the api
+        private int bodies;
+
+        // The name of the class whose members are being scanned
+        private String className;
+
+        @Override
+        public void visitImport(JCImport importDeclaration) {
+            api.append(importDeclaration);
+        }
+
+        @Override
+        public void visitClassDef(JCClassDecl classDeclaration) {
+            var previousClass = className;
+            this.className = classDeclaration.name.toString();
+            try {
+                if(bodies == 0){
+                    declaredNames.add(className);
+                    api.append(classDeclaration.mods)
+                            .append(classDeclaration.name)
+                            .append(classDeclaration.typarams)
+                            .append(classDeclaration.extending)
+                            .append(classDeclaration.implementing)
+                            .append('{');
+                }
+
+                super.visitClassDef(classDeclaration);
+                if(bodies == 0){
+                    api.append('}');
+                }
+            }finally {
+                this.className = previousClass;
+            }
+        }
+
+        @Override
+        public void visitMethodDef(JCMethodDecl method) {
+            var constructor = TreeInfo.isConstructor(method);
+            if(bodies == 0){
+                declaredNames.add(constructor ? className : method.name.toString());
+                if(constructor){
+                    declaredNames.add(SUPER);
+                }
+
+                api.append(method.mods)
+                        .append(method.typarams)
+                        .append(method.restype)
+                        .append(method.name)
+                        .append('(');
+                for(var parameter : method.params){
+                    api.append(parameter.mods).append(parameter.vartype).append(' ').append(parameter.name).append(',');
+                }
+
+                api.append(')').append(method.thrown);
+            }
+
+            // Constructors with an @Option parameter can be invoked by name, by this and by super
+            if(method.params.stream().anyMatch(parameter -> hasOption(parameter.mods.annotations))){
+                named = true;
+                if(constructor){
+                    optionalNames.add(className);
+                    optionalNames.add(SUPER);
+                }else {
+                    optionalNames.add(method.name.toString());
+                }
+            }
+
+            scanBody(method.body);
+            scan(method.defaultValue);
+        }
+
+        @Override
+        public void visitVarDef(JCVariableDecl variable) {
+            if(bodies == 0){
+                declaredNames.add(variable.name.toString());
+                api.append(variable.mods).append(variable.vartype).append(' ').append(variable.name).append(';');
+            }
+
+            // The canonical constructor of a record with an @Option component can be invoked by name
+            if(hasOption(variable.mods.annotations)){
+                named = true;
+                if(className != null){
+                    optionalNames.add(className);
+                }
+            }
+
+            scanBody(variable.init);
+        }
+
+        @Override
+        public void visitBlock(JCBlock block) {
+            bodies++;
+            try {
+                super.visitBlock(block);
+            }finally {
+                bodies--;
+            }
+        }
+
+        @Override
+        public void visitApply(JCMethodInvocation invocation) {
+            referencedNames.add(TreeInfo.name(invocation.meth).toString());
+            scanArguments(invocation.args);
+            super.visitApply(invocation);
+        }
+
+        @Override
+        public void visitNewClass(JCNewClass initialization) {
+            var name = TreeInfo.name(initialization.clazz);
+            if(name != null){
+                referencedNames.add(name.toString());
+            }
+
+            scanArguments(initialization.args);
+            super.visitNewClass(initialization);
+        }
+
+        // Named arguments are referenced too: a field with the same name declared by another file turns them into assignments
+        private void scanArguments(List<JCExpression> arguments) {
+            for(var argument : arguments){
+                if(skipParens(argument) instanceof JCAssign assignment && assignment.lhs instanceof JCIdent identifier){
+                    referencedNames.add(identifier.name.toString());
+                    named = true;
+                }
+            }
+        }
+
+        private void scanBody(JCTree body) {
+            bodies++;
+            try {
+                scan(body);
+            }finally {
+                bodies--;
+            }
+        }
+
+        private boolean hasOption(List<JCAnnotation> annotations) {
+            return annotations.stream().anyMatch(Annotations::isOption);
+        }
+    }
+}
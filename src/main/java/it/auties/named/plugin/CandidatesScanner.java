@@ -0,0 +1,638 @@
+package it.auties.named.plugin;
+
+import static com.sun.tools.javac.tree.TreeInfo.skipParens;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Source;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCAnnotatedType;
+import com.sun.tools.javac.tree.JCTree.JCAnnotation;
+import com.sun.tools.javac.tree.JCTree.JCArrayTypeTree;
+import com.sun.tools.javac.tree.JCTree.JCAssign;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCFieldAccess;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCLambda;
+import com.sun.tools.javac.tree.JCTree.JCLiteral;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import com.sun.tools.javac.tree.JCTree.JCNewClass;
+import com.sun.tools.javac.tree.JCTree.JCTypeApply;
+import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.ListBuffer;
+import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import it.auties.named.util.Annotations;
+import it.auties.named.util.Diagnostics.Candidates;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Finds the compilation units that may contain named or optional arguments right after they are parsed
+// A unit is a candidate if it contains an assignment used as an argument, if it declares an @Option parameter
+// or if it invokes a method or constructor whose name matches one that declares an @Option parameter in this compilation
+// All the other units are left to javac, which avoids the second attribution pass
+public class CandidatesScanner extends TreeScanner<Void, Void> {
+    private final Names names;
+    private final Annotations annotations;
+    private final Log log;
+    private final PluginLog pluginLog;
+
+    // The boxed types, whose literal default values are constants
+    private static final Set<String> BOXED_TYPES = Set.of("Boolean", "Byte", "Character", "Short", "Integer", "Long", "Float", "Double");
+
+    // Whether default values are moved to provider methods of the class that declares the method
+    private final boolean providers;
+
+    // Whether inner classes can declare static members, which was introduced by Java 16 together with records
+    private final boolean staticInnerMembers;
+
+    // The units that contain named arguments or @Option parameters
+    private final Set<CompilationUnitTree> namedUnits;
+
+    // The names invoked by the units that don't contain named arguments or @Option parameters
+    private final Map<CompilationUnitTree, Set<Name>> invokedNames;
+
+    // The names of the methods and constructors that declare at least an @Option parameter
+    private final Set<Name> optionalNames;
+
+    // The result computed for each unit that reached the analyze phase
+    private final Map<CompilationUnitTree, Boolean> results;
+
+    // The names of the named arguments and the trees that javac reports the errors of their invocations on, for each unit that contains them
+    // They are kept until the unit is translated, so that only the errors they cause are buffered
+    private final Map<CompilationUnitTree, Set<JCTree>> namedArguments;
+    private final Map<CompilationUnitTree, Set<JCTree>> namedInvocations;
+
+    // The state of the unit being scanned
+    private Set<Name> scannedNames;
+    private boolean scannedNamed;
+    private Set<JCTree> scannedArguments;
+    private Set<JCTree> scannedInvocations;
+    private Name scannedClass;
+
+    // The unit being scanned and the simple names it imports or declares as classes, computed the first time a default value needs them
+    private JCCompilationUnit scannedUnit;
+    private Set<Name> scannedKnownNames;
+
+    // The declarations that enclose the @Option annotation being scanned and the names that can be used to refer to the classes of the unit
+    // Local classes can only be referred to by their simple name, anonymous classes can't be referred to at all
+    private JCClassDecl scannedClassDeclaration;
+    private JCMethodDecl scannedMethod;
+    private JCVariableDecl scannedVariable;
+    private boolean scannedStaticMembers;
+    private final Map<JCClassDecl, String> classNames;
+
+    public CandidatesScanner(Context context, boolean providers) {
+        this.providers = providers;
+        this.staticInnerMembers = Source.Feature.RECORDS.allowedInSource(Source.instance(context));
+        this.names = Names.instance(context);
+        this.annotations = Annotations.instance(context);
+        this.namedUnits = new HashSet<>();
+        this.invokedNames = new HashMap<>();
+        this.optionalNames = new HashSet<>();
+        this.results = new HashMap<>();
+        this.namedArguments = new HashMap<>();
+        this.namedInvocations = new HashMap<>();
+        this.classNames = new HashMap<>();
+        this.log = Log.instance(context);
+        this.pluginLog = PluginLog.instance(context);
+    }
+
+    // Scans a unit that was just parsed
+    public void scan(JCCompilationUnit compilationUnit) {
+        this.scannedNames = new HashSet<>();
+        this.scannedNamed = false;
+        this.scannedArguments = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.scannedInvocations = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.scannedClass = null;
+        this.scannedUnit = compilationUnit;
+        this.scannedKnownNames = null;
+        var packageName = compilationUnit.getPackageName();
+        for(var definition : compilationUnit.getTypeDecls()){
+            if(definition instanceof JCClassDecl classDeclaration){
+                classNames.put(classDeclaration, packageName == null ? classDeclaration.name.toString() : "%s.%s".formatted(packageName, classDeclaration.name));
+            }
+        }
+
+        // The parser already reset the source of the log, which is needed to report errors for this unit
+        var previousSource = log.useSource(compilationUnit.getSourceFile());
+        try {
+            super.scan(compilationUnit, null);
+        }finally {
+            log.useSource(previousSource);
+        }
+
+        if(scannedNamed) {
+            namedUnits.add(compilationUnit);
+        }else {
+            invokedNames.put(compilationUnit, scannedNames);
+        }
+
+        if(!scannedArguments.isEmpty()) {
+            namedArguments.put(compilationUnit, scannedArguments);
+            namedInvocations.put(compilationUnit, scannedInvocations);
+        }
+
+        this.scannedNames = null;
+        this.scannedArguments = null;
+        this.scannedInvocations = null;
+        this.scannedUnit = null;
+        this.scannedKnownNames = null;
+        classNames.clear();
+    }
+
+    // Registers a unit that a previous compilation found to have no named arguments or @Option parameters, without scanning it
+    public void restore(CompilationUnitTree compilationUnit, Collection<String> invokedNames) {
+        var results = new HashSet<Name>(invokedNames.size());
+        for(var invokedName : invokedNames) {
+            results.add(names.fromString(invokedName));
+        }
+
+        this.invokedNames.put(compilationUnit, results);
+    }
+
+    // Returns the names invoked by a unit that was just scanned, or an empty optional if it contains named arguments or @Option parameters
+    public Optional<Set<Name>> getInvokedNames(CompilationUnitTree compilationUnit) {
+        return Optional.ofNullable(invokedNames.get(compilationUnit));
+    }
+
+    // Checks if a unit needs to be translated
+    // Units that were never scanned, for example because they were generated, are always translated
+    public boolean isCandidate(CompilationUnitTree compilationUnit) {
+        var cached = results.get(compilationUnit);
+        if(cached != null){
+            return cached;
+        }
+
+        var result = namedUnits.contains(compilationUnit)
+            || !invokedNames.containsKey(compilationUnit)
+            || invokedNames.get(compilationUnit).stream().anyMatch(optionalNames::contains);
+        results.put(compilationUnit, result);
+        invokedNames.remove(compilationUnit);
+        return result;
+    }
+
+    // Returns the trees of a unit whose errors may be caused by its named arguments or by the optional arguments it omits
+    public Candidates getCandidates(CompilationUnitTree compilationUnit) {
+        return new Candidates(namedArguments.getOrDefault(compilationUnit, Set.of()), namedInvocations.getOrDefault(compilationUnit, Set.of()), optionalNames);
+    }
+
+    // Releases the trees of a unit that was translated
+    public void release(CompilationUnitTree compilationUnit) {
+        namedArguments.remove(compilationUnit);
+        namedInvocations.remove(compilationUnit);
+    }
+
+    // Checks if a method or a constructor invoked with a name declares an @Option parameter in this compilation
+    public boolean isOptionalName(Name name) {
+        return name != null && optionalNames.contains(name);
+    }
+
+    // Returns the number of units that reached the analyze phase
+    public int analyzedUnits() {
+        return results.size();
+    }
+
+    // Returns the number of units that were left to javac
+    public int skippedUnits() {
+        return (int) results.values()
+            .stream()
+            .filter(result -> !result)
+            .count();
+    }
+
+    @Override
+    public Void visitClass(ClassTree node, Void ignored) {
+        var classDecl = (JCClassDecl) node;
+        var previousClass = scannedClass;
+        var previousClassDeclaration = scannedClassDeclaration;
+        var previousMethod = scannedMethod;
+        var previousVariable = scannedVariable;
+        var previousStaticMembers = scannedStaticMembers;
+        this.scannedClass = classDecl.getSimpleName();
+        this.scannedClassDeclaration = classDecl;
+        this.scannedMethod = null;
+        this.scannedVariable = null;
+        this.scannedStaticMembers = canDeclareStaticMembers(classDecl, previousClassDeclaration);
+        if(hasOptionalComponent(classDecl)) {
+            optionalNames.add(scannedClass);
+        }
+
+        var className = classNames.get(classDecl);
+        for(var member : classDecl.getMembers()){
+            if(member instanceof JCClassDecl memberClass){
+                classNames.put(memberClass, className == null ? null : "%s.%s".formatted(className, memberClass.name));
+            }
+        }
+
+        try {
+            return super.visitClass(node, ignored);
+        }finally {
+            this.scannedClass = previousClass;
+            this.scannedClassDeclaration = previousClassDeclaration;
+            this.scannedMethod = previousMethod;
+            this.scannedVariable = previousVariable;
+            this.scannedStaticMembers = previousStaticMembers;
+        }
+    }
+
+    // Checks if a class can declare the static members that hold or provide its default values
+    // Before Java 16, inner classes couldn't: local classes and member classes that aren't static, explicitly or implicitly
+    private boolean canDeclareStaticMembers(JCClassDecl classDecl, JCClassDecl enclosingClass) {
+        if(staticInnerMembers || enclosingClass == null) {
+            return true;
+        }
+
+        if(!enclosingClass.getMembers().contains(classDecl)) {
+            return false;
+        }
+
+        return (classDecl.getModifiers().flags & (Flags.STATIC | Flags.INTERFACE | Flags.ENUM | Flags.RECORD)) != 0
+            || (enclosingClass.getModifiers().flags & Flags.INTERFACE) != 0;
+    }
+
+    // Records declare their canonical constructor through their components
+    private boolean hasOptionalComponent(JCClassDecl classDecl) {
+        return (classDecl.getModifiers().flags & Flags.RECORD) != 0
+            && classDecl.getMembers()
+            .stream()
+            .filter(member -> member instanceof JCVariableDecl variable && (variable.getModifiers().flags & Flags.RECORD) != 0)
+            .flatMap(member -> ((JCVariableDecl) member).getModifiers().getAnnotations().stream())
+            .anyMatch(Annotations::isOption);
+    }
+
+    // Records the methods and constructors that declare @Option parameters
+    @Override
+    public Void visitMethod(MethodTree node, Void ignored) {
+        var method = (JCMethodDecl) node;
+        var optional = method.getParameters()
+            .stream()
+            .flatMap(parameter -> parameter.getModifiers().getAnnotations().stream())
+            .anyMatch(Annotations::isOption);
+        if(optional) {
+            addOptionalName(method);
+        }
+
+        var previousMethod = scannedMethod;
+        this.scannedMethod = method;
+        try {
+            return super.visitMethod(node, ignored);
+        }finally {
+            this.scannedMethod = previousMethod;
+        }
+    }
+
+    // Keeps track of the parameter or record component whose annotations are being scanned
+    @Override
+    public Void visitVariable(VariableTree node, Void ignored) {
+        var previousVariable = scannedVariable;
+        this.scannedVariable = (JCVariableDecl) node;
+        try {
+            return super.visitVariable(node, ignored);
+        }finally {
+            this.scannedVariable = previousVariable;
+        }
+    }
+
+    // Constructors are invoked using the name of their class or through super
+    private void addOptionalName(JCMethodDecl method) {
+        if(method.getName() != names.init) {
+            optionalNames.add(method.getName());
+            return;
+        }
+
+        if(scannedClass != null) {
+            optionalNames.add(scannedClass);
+        }
+
+        optionalNames.add(names._super);
+    }
+
+    @Override
+    public Void visitMethodInvocation(MethodInvocationTree node, Void ignored) {
+        var invocation = (JCMethodInvocation) node;
+        addInvokedName(invocation.getMethodSelect(), TreeInfo.name(invocation.getMethodSelect()), invocation.getArguments());
+        return super.visitMethodInvocation(node, ignored);
+    }
+
+    @Override
+    public Void visitNewClass(NewClassTree node, Void ignored) {
+        var initialization = (JCNewClass) node;
+        addInvokedName(initialization, TreeInfo.name(initialization.getIdentifier()), initialization.getArguments());
+        return super.visitNewClass(node, ignored);
+    }
+
+    // Records the invoked name and the arguments that are assignments to an identifier, together with the tree javac reports the errors of the invocation on
+    private void addInvokedName(JCTree tree, Name name, List<JCExpression> arguments) {
+        if(name != null) {
+            scannedNames.add(name);
+        }
+
+        for(var argument : arguments) {
+            if(skipParens(argument) instanceof JCAssign assignment) {
+                scannedNamed = true;
+                if(assignment.getVariable() instanceof JCIdent identifier) {
+                    scannedArguments.add(identifier);
+                    scannedInvocations.add(tree);
+                }
+            }
+        }
+    }
+
+    // Any @Option annotation requires the unit to be translated
+    // Its default value must also be encoded before javac attributes the annotation
+    @Override
+    public Void visitAnnotation(AnnotationTree node, Void ignored) {
+        var annotation = (JCAnnotation) node;
+        if(Annotations.isOption(annotation)) {
+            scannedNamed = true;
+            encodeDefaultValue(annotation);
+        }
+
+        return super.visitAnnotation(node, ignored);
+    }
+
+    // Constant and invariant default values are moved to a holder in the class that declares the method, if the class can be referred to
+    // Otherwise, they are encoded like any other default value and evaluated by every invocation
+    // The default values of parameters that aren't annotated, like the ones of anonymous classes, are always encoded as they are
+    private void encodeDefaultValue(JCAnnotation annotation) {
+        if(scannedVariable == null || scannedClassDeclaration == null) {
+            annotations.encodeDefaultValue(annotation);
+            return;
+        }
+
+        if(encodeConstantDefaultValue(annotation)) {
+            return;
+        }
+
+        if(!Annotations.isInvariant(annotation)) {
+            encodeVariantDefaultValue(annotation);
+            return;
+        }
+
+        var className = getClassName(scannedClassDeclaration);
+        if(className == null) {
+            pluginLog.warning(annotation.pos(), "Invariant default values aren't supported in anonymous classes, the value will be evaluated by every invocation");
+            annotations.encodeDefaultValue(annotation);
+            return;
+        }
+
+        if(!scannedStaticMembers) {
+            pluginLog.warning(annotation.pos(), "Invariant default values aren't supported in inner classes before Java 16, the value will be evaluated by every invocation");
+            annotations.encodeDefaultValue(annotation);
+            return;
+        }
+
+        if(usesTypeVariables(scannedVariable.vartype)) {
+            pluginLog.error(annotation.pos(), "Invariant default values can't be used for parameters whose type depends on a type variable");
+            annotations.encodeDefaultValue(annotation);
+            return;
+        }
+
+        annotations.encodeInvariantDefaultValue(annotation, scannedVariable, scannedClassDeclaration, className, getMemberName(), isExported());
+    }
+
+    // Empty arrays, used when no default value is specified, and boxed literals are constants shared by the invocations that omit the parameter,
+    // if the class that declares the method can be referred to and can declare static members. Otherwise, every invocation allocates its own value
+    // Returns whether the default value was encoded
+    private boolean encodeConstantDefaultValue(JCAnnotation annotation) {
+        var value = getConstantDefaultValue(annotation);
+        if(value == null) {
+            return false;
+        }
+
+        var className = getClassName(scannedClassDeclaration);
+        if(className == null || !scannedStaticMembers || usesTypeVariables(scannedVariable.vartype)) {
+            return false;
+        }
+
+        annotations.encodeConstantDefaultValue(annotation, scannedVariable, value, scannedClassDeclaration, className, getMemberName(), isExported());
+        return true;
+    }
+
+    // Returns the constant default value of the scanned parameter, or null if its default value may not be shared
+    // Varargs parameters don't need a default value, javac already passes an empty array
+    // Boxing the values that the JLS requires to be cached never allocates, so they are copied like any other literal
+    private JCExpression getConstantDefaultValue(JCAnnotation annotation) {
+        var value = Annotations.findValue(annotation);
+        var type = scannedVariable.vartype;
+        if(value == null) {
+            return type instanceof JCArrayTypeTree arrayType && (scannedVariable.getModifiers().flags & Flags.VARARGS) == 0
+                ? annotations.createEmptyArray(arrayType, annotation.pos) : null;
+        }
+
+        var boxedName = getBoxedName(type);
+        var literal = Annotations.getNumericValue(value);
+        return boxedName != null && literal != null && Annotations.isBoxingAllocation(boxedName, literal) ? value : null;
+    }
+
+    // Returns the simple name of a boxed type, or null if the type isn't one
+    private String getBoxedName(JCTree type) {
+        if(type instanceof JCIdent identifier && BOXED_TYPES.contains(identifier.getName().toString())) {
+            return identifier.getName().toString();
+        }
+
+        if(type instanceof JCFieldAccess fieldAccess
+            && BOXED_TYPES.contains(fieldAccess.getIdentifier().toString())
+            && fieldAccess.getExpression().toString().equals("java.lang")) {
+            return fieldAccess.getIdentifier().toString();
+        }
+
+        return null;
+    }
+
+    // Default values that aren't invariant are moved to a provider method if providers are enabled and the value can be evaluated there
+    // Literals are always copied, as they are smaller than an invocation of the provider
+    // Values that refer to the other parameters or to this must be evaluated by each invocation, like the ones of inner classes that can't declare static methods
+    // Values that refer to members without qualifying them are copied as well, as they would resolve in the class that declares the method instead of where it's invoked
+    private void encodeVariantDefaultValue(JCAnnotation annotation) {
+        var value = Annotations.findValue(annotation);
+        var className = getClassName(scannedClassDeclaration);
+        if(!providers
+            || value == null
+            || className == null
+            || !scannedStaticMembers
+            || skipParens(value) instanceof JCLiteral
+            || refersTo(value, getParameterNames())
+            || refersToUnqualifiedMembers(value)
+            || usesTypeVariables(scannedVariable.vartype)) {
+            annotations.encodeDefaultValue(annotation);
+            return;
+        }
+
+        annotations.encodeProvidedDefaultValue(annotation, scannedVariable, scannedClassDeclaration, className, getMemberName(), isExported());
+    }
+
+    // Checks if a default value contains an identifier that may be an unqualified reference to a field or a method
+    // Identifiers that start with an uppercase letter are considered types, like the names imported by the unit, the classes it declares and the parameters of the lambdas of the value:
+    // they resolve to the same declarations wherever the value is evaluated
+    private boolean refersToUnqualifiedMembers(JCExpression value) {
+        var knownNames = new HashSet<>(getKnownNames());
+        new com.sun.tools.javac.tree.TreeScanner() {
+            @Override
+            public void visitLambda(JCLambda lambda) {
+                lambda.params.forEach(parameter -> knownNames.add(parameter.getName()));
+                super.visitLambda(lambda);
+            }
+        }.scan(value);
+        var result = new boolean[1];
+        new com.sun.tools.javac.tree.TreeScanner() {
+            @Override
+            public void visitIdent(JCIdent identifier) {
+                var name = identifier.getName();
+                result[0] |= !knownNames.contains(name) && (name.isEmpty() || !Character.isUpperCase(name.charAt(0)));
+            }
+        }.scan(value);
+        return result[0];
+    }
+
+    // Returns the simple names imported by the scanned unit, including the static ones, and the names of the classes it declares
+    private Set<Name> getKnownNames() {
+        if(scannedKnownNames != null) {
+            return scannedKnownNames;
+        }
+
+        var results = new HashSet<Name>();
+        for(var importDeclaration : scannedUnit.getImports()) {
+            var name = TreeInfo.name(importDeclaration.getQualifiedIdentifier());
+            if(name != null && name != names.asterisk) {
+                results.add(name);
+            }
+        }
+
+        new com.sun.tools.javac.tree.TreeScanner() {
+            @Override
+            public void visitClassDef(JCClassDecl classDeclaration) {
+                results.add(classDeclaration.name);
+                super.visitClassDef(classDeclaration);
+            }
+        }.scan(scannedUnit);
+        this.scannedKnownNames = results;
+        return results;
+    }
+
+    // Returns the names of the parameters of the scanned method or of the components of the scanned record, and the names of this and super
+    private Set<Name> getParameterNames() {
+        var results = new HashSet<Name>();
+        results.add(names._this);
+        results.add(names._super);
+        if(scannedMethod != null) {
+            scannedMethod.getParameters().forEach(parameter -> results.add(parameter.getName()));
+            return results;
+        }
+
+        getRecordComponents().forEach(component -> results.add(component.getName()));
+        return results;
+    }
+
+    // Returns the suffix of the names of the members that hold or provide the default value of the scanned parameter
+    // The suffix contains the name of the method, the name of the parameter and the hash of the erased types of the parameters of the method,
+    // which tells overloads apart: unlike a counter, it doesn't change when the members of the class are reordered or new ones are added
+    // Constructors, including the canonical constructors of records, are named new, which can't be the name of a method
+    private String getMemberName() {
+        var methodName = scannedMethod == null || scannedMethod.getName() == names.init ? "new" : scannedMethod.getName().toString();
+        var parameters = scannedMethod != null ? scannedMethod.getParameters() : getRecordComponents();
+        var descriptor = new StringBuilder();
+        for(var parameter : parameters) {
+            descriptor.append(getErasedName(parameter.vartype)).append(';');
+        }
+
+        return "$%s$%s$%s".formatted(methodName, scannedVariable.getName(), Integer.toHexString(descriptor.toString().hashCode()));
+    }
+
+    // Returns the components of the scanned record
+    private List<JCVariableDecl> getRecordComponents() {
+        var results = new ListBuffer<JCVariableDecl>();
+        for(var member : scannedClassDeclaration.getMembers()) {
+            if(member instanceof JCVariableDecl variable && (variable.getModifiers().flags & Flags.RECORD) != 0) {
+                results.add(variable);
+            }
+        }
+
+        return results.toList();
+    }
+
+    // Returns the simple name of a type without its type arguments, so that the name doesn't depend on how the type is written
+    private String getErasedName(JCTree type) {
+        if(type instanceof JCArrayTypeTree arrayType) {
+            return getErasedName(arrayType.getType()) + "[]";
+        }
+
+        if(type instanceof JCTypeApply typeApply) {
+            return getErasedName(typeApply.getType());
+        }
+
+        if(type instanceof JCAnnotatedType annotatedType) {
+            return getErasedName(annotatedType.getUnderlyingType());
+        }
+
+        return type instanceof JCFieldAccess fieldAccess ? fieldAccess.getIdentifier().toString() : String.valueOf(type);
+    }
+
+    // Returns the name that invocations can use to refer to a class
+    // Local classes are only visible in the member that declares them, so their simple name is used
+    private String getClassName(JCClassDecl classDeclaration) {
+        if(classDeclaration.name.isEmpty()) {
+            return null;
+        }
+
+        return classNames.getOrDefault(classDeclaration, classDeclaration.name.toString());
+    }
+
+    // Checks if a type refers to the type variables of the scanned method or class, which a static holder can't use
+    private boolean usesTypeVariables(JCTree type) {
+        var typeVariables = new HashSet<Name>();
+        scannedClassDeclaration.getTypeParameters().forEach(parameter -> typeVariables.add(parameter.getName()));
+        if(scannedMethod != null) {
+            scannedMethod.getTypeParameters().forEach(parameter -> typeVariables.add(parameter.getName()));
+        }
+
+        return refersTo(type, typeVariables);
+    }
+
+    // Checks if a tree contains an identifier with any of the provided names
+    private boolean refersTo(JCTree tree, Set<Name> identifiers) {
+        if(identifiers.isEmpty()) {
+            return false;
+        }
+
+        var result = new boolean[1];
+        new com.sun.tools.javac.tree.TreeScanner() {
+            @Override
+            public void visitIdent(JCIdent identifier) {
+                result[0] |= identifiers.contains(identifier.getName());
+            }
+        }.scan(tree);
+        return result[0];
+    }
+
+    // Holders of public and protected methods, or of interfaces, must be visible outside the package
+    private boolean isExported() {
+        if((scannedClassDeclaration.getModifiers().flags & Flags.INTERFACE) != 0) {
+            return true;
+        }
+
+        var flags = scannedMethod != null ? scannedMethod.getModifiers().flags : scannedClassDeclaration.getModifiers().flags;
+        return (flags & (Flags.PUBLIC | Flags.PROTECTED)) != 0;
+    }
+}
@@ -0,0 +1,41 @@
+package it.auties.named.plugin;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.tools.javac.util.Context;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+// Keeps track of the positions assigned to the default values added to each unit
+// Javac caches the type of each argument of an invocation by its position, so two default values of a unit can't share one
+// A unit can be translated twice, before it's attributed by the enter engine and after, so the positions are kept until the unit is analyzed
+final class DefaultPositions {
+    private static final Context.Key<DefaultPositions> defaultPositionsKey = new Context.Key<>();
+
+    private final Map<CompilationUnitTree, BitSet> positions;
+
+    private DefaultPositions(Context context) {
+        this.positions = new HashMap<>();
+        context.put(defaultPositionsKey, this);
+    }
+
+    static DefaultPositions instance(Context context) {
+        var instance = context.get(defaultPositionsKey);
+        return instance != null ? instance : new DefaultPositions(context);
+    }
+
+    // Returns the positions already assigned in a unit
+    BitSet get(CompilationUnitTree compilationUnit) {
+        return positions.computeIfAbsent(compilationUnit, ignored -> new BitSet());
+    }
+
+    // Releases the positions of a unit that won't be translated again
+    void release(CompilationUnitTree compilationUnit) {
+        positions.remove(compilationUnit);
+    }
+
+    // Releases the positions of all units, the task may be kept alive after the compilation is over
+    void clear() {
+        positions.clear();
+    }
+}
@@ -0,0 +1,179 @@
+package it.auties.named.plugin;
+
+import static com.sun.tools.javac.tree.TreeInfo.skipParens;
+
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCAssign;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import com.sun.tools.javac.tree.JCTree.JCNewClass;
+import com.sun.tools.javac.tree.JCTree.JCPolyExpression;
+import com.sun.tools.javac.tree.JCTree.JCTypeParameter;
+import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import it.auties.named.util.Callees;
+import it.auties.named.util.Callees.Scope;
+import it.auties.named.util.Diagnostics;
+import it.auties.named.util.MethodSignatures;
+import it.auties.named.util.Metrics;
+import it.auties.named.util.Overloads;
+import it.auties.named.util.Tracer;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+// Translates the named invocations of a unit right after it's entered, before javac attributes it
+// The callees are resolved by Callees from the symbols of the members entered by javac and from the names of their parameters, so the unit is attributed only once
+// Invocations whose callee can't be known without attributing the unit are left as they are: the transformer that runs after attribution translates them
+public class EnterTransformer extends NamedParameterTransformer {
+    private final Callees callees;
+    private final CandidatesScanner candidatesScanner;
+    private final Names names;
+    private JCCompilationUnit compilationUnit;
+
+    // The names declared by the member being translated and the depth of the local and anonymous classes being translated
+    private JCTree localsMember;
+    private Set<Name> locals;
+    private int localClasses;
+
+    public EnterTransformer(Context context, Diagnostics diagnostics, MethodSignatures signatures, Overloads overloads, CandidatesScanner candidatesScanner, Tracer tracer, Metrics metrics, boolean allocations){
+        super(context, diagnostics, signatures, overloads, tracer, metrics, allocations);
+        this.callees = new Callees(context, signatures);
+        this.candidatesScanner = candidatesScanner;
+        this.names = Names.instance(context);
+    }
+
+    @Override
+    public void visitTopLevel(JCCompilationUnit compilationUnit) {
+        this.compilationUnit = compilationUnit;
+        try {
+            super.visitTopLevel(compilationUnit);
+        }finally {
+            this.compilationUnit = null;
+            this.localsMember = null;
+            this.locals = null;
+        }
+    }
+
+    // The unit is translated again after it's attributed
+    @Override
+    protected boolean isTranslatedAgain() {
+        return true;
+    }
+
+    // Local and anonymous classes aren't entered until their member is attributed
+    @Override
+    public void visitClassDef(JCClassDecl classDeclaration) {
+        var local = enclosingMember() != null && enclosingMember() != classDeclaration;
+        if(local){
+            localClasses++;
+        }
+
+        try {
+            super.visitClassDef(classDeclaration);
+        }finally {
+            if(local){
+                localClasses--;
+            }
+        }
+    }
+
+    // Resolves the callee of an invocation without attributing it
+    @Override
+    public Optional<MethodSymbol> getSymbol(JCPolyExpression expression, List<JCExpression> arguments) {
+        var owner = enclosingClass() == null ? null : enclosingClass().sym;
+        if(owner == null || localClasses != 0 || enclosingMember() == null){
+            return Optional.empty();
+        }
+
+        var scope = new Scope(compilationUnit, owner, getLocals());
+        var argumentNames = new Name[arguments.size()];
+        var named = false;
+        var index = 0;
+        for(var list = arguments; list.nonEmpty(); list = list.tail){
+            // An assignment to a variable declared anywhere in the member may be a real assignment, only javac knows
+            if(skipParens(list.head) instanceof JCAssign assignment && assignment.getVariable() instanceof JCIdent identifier){
+                if(callees.isVariable(scope, identifier.name)){
+                    return Optional.empty();
+                }
+
+                argumentNames[index] = identifier.name;
+                named = true;
+            }
+
+            index++;
+        }
+
+        // Invocations without named arguments only need to be translated if they omit a default value, which only the methods of this compilation can have here
+        if(!named && !candidatesScanner.isOptionalName(getInvokedName(expression, owner.name))){
+            return Optional.empty();
+        }
+
+        return callees.select(callees.find(scope, expression), argumentNames);
+    }
+
+    // Returns the name that the candidates scanner records for an invocation
+    private Name getInvokedName(JCPolyExpression expression, Name owner) {
+        if(expression instanceof JCNewClass initialization){
+            return TreeInfo.name(initialization.getIdentifier());
+        }
+
+        var name = TreeInfo.name(((JCMethodInvocation) expression).getMethodSelect());
+        return name == names._this ? owner : name;
+    }
+
+    // Invocations that can't be translated yet are left to the transformer that runs after attribution
+    @Override
+    protected void removeAttributes(JCPolyExpression expression) {
+
+    }
+
+    // The unit isn't attributed yet, so every assignment to a simple name is a named argument unless it may refer to a variable
+    @Override
+    protected Name getNamedArgument(JCExpression argument) {
+        return skipParens(argument) instanceof JCAssign assignment
+            && assignment.getVariable() instanceof JCIdent identifier
+            && !callees.isVariable(new Scope(compilationUnit, enclosingClass().sym, getLocals()), identifier.name) ? identifier.name : null;
+    }
+
+    // Returns the names of the variables, of the local classes and of the type variables declared by the member being translated
+    // The scope of each name isn't tracked, so any of them shadows the fields and the types with the same name in the whole member
+    private Set<Name> getLocals() {
+        if(localsMember == enclosingMember()){
+            return locals;
+        }
+
+        var results = new HashSet<Name>();
+        new TreeScanner() {
+            @Override
+            public void visitVarDef(JCVariableDecl variable) {
+                results.add(variable.name);
+                super.visitVarDef(variable);
+            }
+
+            @Override
+            public void visitClassDef(JCClassDecl classDeclaration) {
+                results.add(classDeclaration.name);
+                super.visitClassDef(classDeclaration);
+            }
+
+            @Override
+            public void visitTypeParameter(JCTypeParameter typeParameter) {
+                results.add(typeParameter.name);
+                super.visitTypeParameter(typeParameter);
+            }
+        }.scan(enclosingMember());
+        this.localsMember = enclosingMember();
+        this.locals = results;
+        return results;
+    }
+}
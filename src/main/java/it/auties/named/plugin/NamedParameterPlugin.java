@@ -1,124 +1,366 @@
 package it.auties.named.plugin;
 
-import static com.sun.tools.javac.code.Flags.UNATTRIBUTED;
-
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.Plugin;
 import com.sun.source.util.TaskEvent;
 import com.sun.source.util.TaskListener;
 import com.sun.tools.javac.api.BasicJavacTask;
 import com.sun.tools.javac.comp.Attr;
-import com.sun.tools.javac.comp.AttrContext;
 import com.sun.tools.javac.comp.Enter;
-import com.sun.tools.javac.comp.Env;
-import com.sun.tools.javac.comp.MemberEnter;
+import com.sun.tools.javac.jvm.ClassReader;
+import com.sun.tools.javac.main.Option;
+import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCClassDecl;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
-import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Options;
+import it.auties.named.util.Annotations;
 import it.auties.named.util.Diagnostics;
+import it.auties.named.util.MethodSignatures;
+import it.auties.named.util.Metrics;
+import it.auties.named.util.Metrics.Counter;
+import it.auties.named.util.Metrics.Sample;
+import it.auties.named.util.Metrics.Stage;
+import it.auties.named.util.Overloads;
 import it.auties.named.util.Reflection;
+import it.auties.named.util.SourceIndex;
+import it.auties.named.util.Tracer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.lang.model.element.TypeElement;
 
 // Main entry point
 public class NamedParameterPlugin implements Plugin, TaskListener {
     private Diagnostics diagnostics;
     private NamedParameterTransformer transformer;
+    private EnterTransformer enterTransformer;
+    private DefaultPositions positions;
     private PrepareTypesScanner prepareTypesScanner;
-    private RemoveTypesScanner removeTypesScanner;
+    private CandidatesScanner candidatesScanner;
+    private Annotations annotations;
+    private MethodSignatures signatures;
+    private Overloads overloads;
+    private Tracer tracer;
+    private Metrics metrics;
+    private Path metricsPath;
+    private boolean verbose;
+    private SourceIndex sourceIndex;
+    private Sample attributionSample;
+    private Map<JCCompilationUnit, Integer> pendingClasses;
+    private Log log;
+    private PluginLog pluginLog;
     private Attr attr;
     private Enter enter;
-    private MemberEnter memberEnter;
-
-    // Opens Javac's packages by bypassing the add opens mechanism
-    static{
-        Reflection.openJavac();
-    }
 
     // Initializes the local variables of this object
+    // The plugin can be started both automatically and through -Xplugin, so only the first initialization for a task is kept
+    // All the state is owned by the plugin registered in the context of the task, so concurrent compilations in the same JVM never share it
     @Override
     public void init(JavacTask task, String... args) {
+        // Opens Javac's packages by bypassing the add opens mechanism
+        Reflection.openJavac();
         var context = ((BasicJavacTask) task).getContext();
-        this.diagnostics = new Diagnostics(context);
-        this.transformer = new NamedParameterTransformer(context, diagnostics);
+        if(context.get(NamedParameterPlugin.class) != null){
+            return;
+        }
+
+        context.put(NamedParameterPlugin.class, this);
+        var arguments = new PluginArguments(args);
+        this.log = Log.instance(context);
+        this.pluginLog = PluginLog.instance(context);
+        enableParameterNames(context, arguments.has(PluginArguments.PARAMETERS));
+        arguments.unknownKeys()
+            .forEach(key -> pluginLog.warning("Unknown argument: %s".formatted(key)));
+        this.tracer = new Tracer(arguments.getPath(PluginArguments.TRACE, "named-trace.txt", context).orElse(null));
+        this.metricsPath = arguments.getPath(PluginArguments.METRICS, "named-metrics.json", context).orElse(null);
+        this.metrics = new Metrics(metricsPath != null);
+        this.verbose = metricsPath != null || arguments.has(PluginArguments.VERBOSE);
+        this.sourceIndex = arguments.getPath(PluginArguments.INDEX, "named-index.bin", context)
+            .map(SourceIndex::new)
+            .orElse(null);
+        this.diagnostics = new Diagnostics(context, metrics);
+        this.signatures = new MethodSignatures(context, metrics);
+        this.overloads = new Overloads(context, signatures, metrics);
+        this.transformer = new NamedParameterTransformer(context, diagnostics, signatures, overloads, tracer, metrics, arguments.has(PluginArguments.ALLOCATIONS));
         this.attr = Attr.instance(context);
         this.enter = Enter.instance(context);
+        this.pendingClasses = new HashMap<>();
         this.prepareTypesScanner = new PrepareTypesScanner(context);
-        this.removeTypesScanner = new RemoveTypesScanner();
-        this.memberEnter = MemberEnter.instance(context);
+        this.candidatesScanner = new CandidatesScanner(context, arguments.has(PluginArguments.PROVIDERS));
+        this.enterTransformer = createEnterTransformer(context, arguments);
+        this.positions = DefaultPositions.instance(context);
+        this.annotations = Annotations.instance(context);
         task.addTaskListener(this);
     }
 
+    // Creates the transformer that runs before attribution if the enter engine was chosen
+    // The transformer that runs after attribution is always used, as it translates the invocations that the enter engine can't resolve
+    private EnterTransformer createEnterTransformer(Context context, PluginArguments arguments) {
+        var engine = arguments.get(PluginArguments.ENGINE).orElse(PluginArguments.ATTRIBUTION_ENGINE);
+        if(engine.equals(PluginArguments.ENTER_ENGINE)){
+            return new EnterTransformer(context, diagnostics, signatures, overloads, candidatesScanner, tracer, metrics, arguments.has(PluginArguments.ALLOCATIONS));
+        }
+
+        if(!engine.equals(PluginArguments.ATTRIBUTION_ENGINE)){
+            pluginLog.warning("Unknown engine: %s, using %s".formatted(engine, PluginArguments.ATTRIBUTION_ENGINE));
+        }
+
+        return null;
+    }
+
     @Override
     public void started(TaskEvent event) {
-        if(event.getKind() != TaskEvent.Kind.ANALYZE){
+        if(event.getKind() != TaskEvent.Kind.ANALYZE || !candidatesScanner.isCandidate(event.getCompilationUnit())){
             return;
         }
 
         // Get the compilation unit currently being scanned
         var compilationUnit = (JCCompilationUnit) event.getCompilationUnit();
 
-        // Add placeholder types to prepare for scan
-        prepareTypesScanner.scan(compilationUnit);
+        // Add placeholder types to the class that is about to be attributed
+        var prepareSample = metrics.start(Stage.PREPARE);
+        var classDeclaration = findClass(compilationUnit, event.getTypeElement());
+        prepareTypesScanner.scan(classDeclaration != null ? classDeclaration : compilationUnit);
+        metrics.stop(prepareSample, compilationUnit);
 
-        // Disable javac's attribution error handling
-        diagnostics.useCachedHandler();
+        // Buffer the errors that the named and optional arguments of the unit may cause
+        diagnostics.useCachedHandler(candidatesScanner.getCandidates(compilationUnit));
+
+        // Measure the attribution done by javac until the unit is analyzed
+        this.attributionSample = metrics.start(Stage.CACHED_ATTRIBUTION);
     }
 
     @Override
     public void finished(TaskEvent event) {
-        if(event.getKind() != TaskEvent.Kind.ANALYZE){
+        switch (event.getKind()){
+            case PARSE -> scan((JCCompilationUnit) event.getCompilationUnit());
+            case ENTER -> {
+                if(enterTransformer != null && candidatesScanner.isCandidate(event.getCompilationUnit())) {
+                    rewrite((JCCompilationUnit) event.getCompilationUnit());
+                }
+            }
+            case ANALYZE -> {
+                if(candidatesScanner.isCandidate(event.getCompilationUnit())) {
+                    translate(event);
+                }
+            }
+            case COMPILATION -> {
+                annotations.clear();
+                signatures.clear();
+                overloads.clear();
+                positions.clear();
+                pendingClasses.clear();
+                writeIndex();
+                closeTrace();
+                report();
+                writeMetrics();
+            }
+        }
+    }
+
+    // Scans a unit that was just parsed, unless the index knows that its content has no named arguments or @Option parameters
+    // Units that contain them are always scanned, as their @Option default values must be encoded again
+    private void scan(JCCompilationUnit compilationUnit) {
+        if(sourceIndex == null){
+            candidatesScanner.scan(compilationUnit);
+            return;
+        }
+
+        var sourceFile = compilationUnit.getSourceFile();
+        var file = sourceFile.toUri().toString();
+        var contentHash = hashContent(compilationUnit);
+        var entry = contentHash.flatMap(hash -> sourceIndex.find(file, hash));
+        if(entry.isPresent() && !entry.get().named()){
+            metrics.increment(Counter.INDEX_HITS);
+            candidatesScanner.restore(compilationUnit, entry.get().invokedNames());
+            return;
+        }
+
+        metrics.increment(Counter.INDEX_MISSES);
+        candidatesScanner.scan(compilationUnit);
+        if(contentHash.isEmpty() || entry.isPresent()){
+            return;
+        }
+
+        var invokedNames = candidatesScanner.getInvokedNames(compilationUnit);
+        var indexedNames = invokedNames.stream()
+            .flatMap(Set::stream)
+            .map(Name::toString)
+            .toList();
+        sourceIndex.put(file, contentHash.get(), invokedNames.isEmpty(), indexedNames);
+    }
+
+    // Hashes the content of a unit
+    // Javac caches the content of the files it parsed, so they aren't read again
+    private Optional<Long> hashContent(JCCompilationUnit compilationUnit) {
+        try {
+            return Optional.of(SourceIndex.hash(compilationUnit.getSourceFile().getCharContent(false)));
+        }catch (IOException | UnsupportedOperationException exception){
+            return Optional.empty();
+        }
+    }
+
+    // Closes the trace of the call sites rewritten by this compilation
+    // The trace is only a diagnostic aid, so failing to write it doesn't fail the compilation
+    private void closeTrace() {
+        try {
+            tracer.close();
+        }catch (UncheckedIOException exception){
+            pluginLog.warning("Cannot write the trace: %s".formatted(exception.getMessage()));
+        }
+    }
+
+    // Writes the metrics of this compilation, if they were requested
+    // The metrics only describe the compilation, so failing to write them doesn't fail it
+    private void writeMetrics() {
+        if(metricsPath == null){
             return;
         }
 
+        try {
+            metrics.writeReport(metricsPath, candidatesScanner.analyzedUnits(), candidatesScanner.skippedUnits());
+        }catch (UncheckedIOException exception){
+            pluginLog.warning("Cannot write the metrics: %s".formatted(exception.getMessage()));
+        }
+    }
+
+    // Writes the index of the units scanned by this compilation
+    // The index is only a cache, so failing to write it doesn't fail the compilation
+    private void writeIndex() {
+        if(sourceIndex == null){
+            return;
+        }
+
+        try {
+            sourceIndex.write();
+        }catch (UncheckedIOException exception){
+            pluginLog.warning("Cannot write the index: %s".formatted(exception.getMessage()));
+        }
+    }
+
+    // Translates the named invocations of a unit that was just entered, javac then attributes it as if they were written positionally
+    // All the units are entered before the first one is rewritten, so the members of every class of the compilation are known
+    private void rewrite(JCCompilationUnit compilationUnit) {
+        var rewriteSample = metrics.start(Stage.REWRITE);
+        enterTransformer.translate(compilationUnit);
+        metrics.stop(rewriteSample, compilationUnit);
+    }
+
+    // Translates the class of a unit that was just attributed
+    // Javac attributes and generates the top-level classes of a unit one at a time, so only the class of the event is translated
+    private void translate(TaskEvent event) {
         // Get the compilation unit currently being scanned
         var compilationUnit = (JCCompilationUnit) event.getCompilationUnit();
+        if(attributionSample != null) {
+            metrics.stop(attributionSample, compilationUnit);
+            this.attributionSample = null;
+        }
 
-        // Translate all named invocations inside the unit
-        transformer.translate(compilationUnit);
-
-        // Print tree
-        System.err.printf("Translated: %n%s%n", compilationUnit);
+        // Translate all named invocations inside the class, or inside the unit if it doesn't declare one
+        var translateSample = metrics.start(Stage.TRANSLATE);
+        var classDeclaration = findClass(compilationUnit, event.getTypeElement());
+        var lastClass = classDeclaration == null || isLastClass(compilationUnit);
+        if(classDeclaration != null) {
+            transformer.translate(compilationUnit, classDeclaration, lastClass);
+        }else {
+            transformer.translate(compilationUnit);
+        }
+        metrics.stop(translateSample, compilationUnit);
 
         // Switch back to javac's error handling
         diagnostics.useJavacHandler();
+        if(lastClass) {
+            candidatesScanner.release(compilationUnit);
+        }
+
+        // Attribute the changed members again
+        // The transformer already removed the types of the invocations that need to be resolved again
+        var attributeSample = metrics.start(Stage.ATTRIBUTE);
+        attribute(transformer.changedMembers());
+        metrics.stop(attributeSample, compilationUnit);
+    }
 
-        // Remove types to prepare for the new attribution process
-        removeTypesScanner.scan(compilationUnit, null);
+    // Returns the top-level class of a unit that declares a type, or null if there is none
+    private JCClassDecl findClass(JCCompilationUnit compilationUnit, TypeElement type) {
+        for(var definition : compilationUnit.defs){
+            if(definition instanceof JCClassDecl classDeclaration && classDeclaration.sym != null && classDeclaration.sym == type){
+                return classDeclaration;
+            }
+        }
 
-        // Attribute the unit again
-        attribute(compilationUnit);
+        return null;
     }
 
-    // Forces attribution of a compilation unit
-    private void attribute(JCCompilationUnit unit){
-        unit.getTypeDecls()
-                 .stream()
-                .filter(declaration -> declaration instanceof JCClassDecl)
-                .map(declaration -> (JCClassDecl) declaration)
-                .forEach(this::attribute);
+    // Checks if all the other top-level classes of a unit were already translated
+    private boolean isLastClass(JCCompilationUnit compilationUnit) {
+        var pending = pendingClasses.getOrDefault(compilationUnit, countClasses(compilationUnit)) - 1;
+        if(pending > 0){
+            pendingClasses.put(compilationUnit, pending);
+            return false;
+        }
+
+        pendingClasses.remove(compilationUnit);
+        return true;
     }
 
-    // Forces attribution of class
-    private void attribute(JCClassDecl classDeclaration) {
-        var env = enterClass(classDeclaration);
-        classDeclaration.defs.stream()
-                .filter(definition -> definition instanceof JCMethodDecl)
-                .map(definition -> (JCMethodDecl) definition)
-                .forEach(methodDecl -> enterMethod(methodDecl, env));
+    // Counts the top-level classes of a unit
+    private int countClasses(JCCompilationUnit compilationUnit) {
+        var classes = 0;
+        for(var definition : compilationUnit.defs){
+            if(definition instanceof JCClassDecl){
+                classes++;
+            }
+        }
+
+        return classes;
     }
 
-    // Forces attribution of class
-    private Env<AttrContext> enterClass(JCClassDecl classDeclaration) {
-        var env = enter.getClassEnv(classDeclaration.sym);
-        classDeclaration.sym.flags_field = classDeclaration.sym.flags_field | UNATTRIBUTED;
-        attr.attrib(env);
-        return env;
+    // Reads the names of the parameters of compiled dependencies, from their MethodParameters or LocalVariableTable attributes, like -parameters does
+    // Named invocations of methods from compiled dependencies need them, while reading them doesn't change the classes being compiled
+    // The MethodParameters attribute is only written to the class files if the parameters argument was provided
+    // The reader was already created when the plugin is initialized, so it's configured directly
+    private void enableParameterNames(Context context, boolean write) {
+        ClassReader.instance(context).saveParameterNames = true;
+        if(write) {
+            Options.instance(context).put(Option.PARAMETERS, Option.PARAMETERS.primaryName);
+        }
     }
 
-    // Forces attribution of a method
-    private void enterMethod(JCMethodDecl methodDecl, Env<AttrContext> parent) {
-        var env = memberEnter.getMethodEnv(methodDecl, parent);
-        methodDecl.sym.flags_field = methodDecl.sym.flags_field | UNATTRIBUTED;
-        attr.attrib(env);
+    // Reports how many units didn't need to be translated, if metrics or verbose output were requested
+    private void report() {
+        var analyzed = candidatesScanner.analyzedUnits();
+        if(!verbose || analyzed == 0){
+            return;
+        }
+
+        var skipped = candidatesScanner.skippedUnits();
+        pluginLog.note("%s of %s compilation units took the fast path".formatted(skipped, analyzed));
+    }
+
+    // Forces attribution of the members that were changed by the transformer
+    private void attribute(Map<JCClassDecl, Set<JCTree>> changedMembers){
+        changedMembers.forEach(this::attribute);
+    }
+
+    // Forces attribution of the changed members of a class
+    private void attribute(JCClassDecl classDeclaration, Set<JCTree> members) {
+        var env = enter.getClassEnv(classDeclaration.sym);
+        var previousSource = log.useSource(classDeclaration.sym.sourcefile);
+        try {
+            for(var member : members){
+                metrics.increment(Counter.MEMBERS_ATTRIBUTED);
+                attr.attribStat(member, env);
+            }
+        }finally {
+            log.useSource(previousSource);
+        }
     }
 
     @Override
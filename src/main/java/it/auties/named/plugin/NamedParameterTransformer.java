@@ -4,73 +4,321 @@ import static com.sun.tools.javac.tree.TreeInfo.setSymbol;
 import static com.sun.tools.javac.tree.TreeInfo.skipParens;
 import static com.sun.tools.javac.tree.TreeInfo.symbolFor;
 
-import com.sun.tools.javac.api.JavacTrees;
-import com.sun.tools.javac.code.Flags;
 import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Symbol.VarSymbol;
 import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Type.ArrayType;
 import com.sun.tools.javac.code.TypeTag;
 import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.comp.Check;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCAssign;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.tree.JCTree.JCExpression;
 import com.sun.tools.javac.tree.JCTree.JCIdent;
 import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import com.sun.tools.javac.tree.JCTree.JCNewArray;
 import com.sun.tools.javac.tree.JCTree.JCNewClass;
 import com.sun.tools.javac.tree.JCTree.JCPolyExpression;
-import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
 import com.sun.tools.javac.tree.TreeMaker;
+import com.sun.tools.javac.tree.TreeScanner;
 import com.sun.tools.javac.tree.TreeTranslator;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.ListBuffer;
+import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Name;
 import it.auties.named.util.Annotations;
 import it.auties.named.util.Diagnostics;
+import it.auties.named.util.MethodSignatures;
+import it.auties.named.util.MethodSignatures.Signature;
+import it.auties.named.util.Metrics;
+import it.auties.named.util.Metrics.Counter;
+import it.auties.named.util.Overloads;
+import it.auties.named.util.Tracer;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Set;
 import javax.lang.model.type.TypeKind;
 
 // Handles the translation of all invocations known to Java
 public class NamedParameterTransformer extends TreeTranslator {
+    // The targets of positional arguments and of named arguments that don't match any parameter
+    private static final int POSITIONAL = -1;
+    private static final int UNKNOWN = -2;
+
     // Some useful utility types from Javac
-    private final JavacTrees trees;
-    private final Types types;
     private final Diagnostics diagnostics;
+    private final Tracer tracer;
+    private final Metrics metrics;
+    private final Annotations annotations;
+    private final MethodSignatures signatures;
+    private final Overloads overloads;
+    private final Check check;
+    private final Log log;
+    private final PluginLog pluginLog;
+    private final Types types;
     private TreeMaker maker;
     private Symtab symtab;
 
-    public NamedParameterTransformer(Context context, Diagnostics diagnostics){
-        this.trees = JavacTrees.instance(context);
-        this.types = Types.instance(context);
+    // Whether the invocations whose default values allocate an object are reported
+    private final boolean allocations;
+
+    // The members that contain at least a translated invocation grouped by the class that declares them
+    // Local and anonymous classes, lambdas and initializers are attributed as part of their enclosing member
+    private final Map<JCClassDecl, Set<JCTree>> changedMembers;
+    private JCClassDecl enclosingClass;
+    private JCTree enclosingMember;
+    private JCCompilationUnit compilationUnit;
+
+    // The source of the unit being translated and the positions already assigned to default values
+    private CharSequence source;
+    private final DefaultPositions positions;
+    private BitSet defaultPositions;
+
+    // The invocations that need to be attributed again and the local and anonymous classes found in the members being translated
+    // When a member changes, they lose their types so that javac attributes them again from scratch,
+    // while the valid invocations that weren't rewritten keep the types that javac already resolved
+    private final ArrayList<JCPolyExpression> memberInvocations;
+    private final ArrayList<JCClassDecl> memberClasses;
+    private boolean memberChanged;
+
+    // The parameter that receives each argument of the invocation being translated and the value it receives
+    // The arrays are reused by every invocation to avoid allocating
+    private int[] argumentTargets;
+    private JCExpression[] argumentValues;
+
+    public NamedParameterTransformer(Context context, Diagnostics diagnostics, MethodSignatures signatures, Overloads overloads, Tracer tracer, Metrics metrics, boolean allocations){
+        this.allocations = allocations;
         this.diagnostics = diagnostics;
+        this.tracer = tracer;
+        this.metrics = metrics;
+        this.annotations = Annotations.instance(context);
+        this.signatures = signatures;
+        this.overloads = overloads;
+        this.check = Check.instance(context);
+        this.log = Log.instance(context);
+        this.pluginLog = PluginLog.instance(context);
+        this.types = Types.instance(context);
         this.maker = TreeMaker.instance(context);
         this.symtab = Symtab.instance(context);
+        this.changedMembers = new LinkedHashMap<>();
+        this.memberInvocations = new ArrayList<>();
+        this.memberClasses = new ArrayList<>();
+        this.positions = DefaultPositions.instance(context);
+        this.argumentTargets = new int[16];
+        this.argumentValues = new JCExpression[16];
+    }
+
+    // Returns the members that were changed by the last translation
+    public Map<JCClassDecl, Set<JCTree>> changedMembers() {
+        return Collections.unmodifiableMap(changedMembers);
+    }
+
+    // Resets the members changed by the previous translation
+    @Override
+    public void visitTopLevel(JCCompilationUnit compilationUnit) {
+        translateUnit(compilationUnit, () -> super.visitTopLevel(compilationUnit), true);
+    }
+
+    // Translates a top-level class of a unit that was just attributed
+    // Javac attributes and generates the top-level classes of a unit one at a time, so the other classes may not be attributed yet
+    // The positions of the default values of the unit are kept until its last class is translated
+    public void translate(JCCompilationUnit compilationUnit, JCClassDecl classDeclaration, boolean last) {
+        translateUnit(compilationUnit, () -> translate(classDeclaration), last);
+    }
+
+    // Resets the members changed by the previous translation and runs a translation of a unit
+    private void translateUnit(JCCompilationUnit compilationUnit, Runnable translation, boolean last) {
+        changedMembers.clear();
+        this.compilationUnit = compilationUnit;
+        this.source = readSource(compilationUnit);
+        this.defaultPositions = positions.get(compilationUnit);
+        try {
+            translation.run();
+        }finally {
+            this.source = null;
+            this.defaultPositions = null;
+            if(last && !isTranslatedAgain()) {
+                positions.release(compilationUnit);
+            }
+        }
+    }
+
+    // Checks if the units are translated again after this translation, in which case the positions of their default values are kept
+    protected boolean isTranslatedAgain() {
+        return false;
+    }
+
+    // Returns the class and the member being translated
+    protected JCClassDecl enclosingClass() {
+        return enclosingClass;
+    }
+
+    protected JCTree enclosingMember() {
+        return enclosingMember;
+    }
+
+    // Keeps track of the member being translated
+    // Local and anonymous classes are remembered, as they are entered again if their member changes
+    @Override
+    public void visitClassDef(JCClassDecl classDeclaration) {
+        if(enclosingMember != null && enclosingMember != classDeclaration){
+            memberClasses.add(classDeclaration);
+            super.visitClassDef(classDeclaration);
+            return;
+        }
+
+        var previousClass = enclosingClass;
+        var previousMember = enclosingMember;
+        var previousChanged = memberChanged;
+        this.enclosingClass = classDeclaration;
+        try {
+            for(var definitions = classDeclaration.defs; definitions.nonEmpty(); definitions = definitions.tail){
+                this.enclosingMember = definitions.head;
+                this.memberChanged = false;
+                var invocationsStart = memberInvocations.size();
+                var classesStart = memberClasses.size();
+                definitions.head = translate(definitions.head);
+                if(memberChanged) {
+                    resetMember(invocationsStart, classesStart);
+                }
+
+                memberInvocations.subList(invocationsStart, memberInvocations.size()).clear();
+                memberClasses.subList(classesStart, memberClasses.size()).clear();
+            }
+
+            this.result = classDeclaration;
+        }finally {
+            this.enclosingClass = previousClass;
+            this.enclosingMember = previousMember;
+            this.memberChanged = previousChanged;
+        }
+    }
+
+    // Marks the member being translated as changed
+    private void markChanged() {
+        if(enclosingClass == null || enclosingMember == null){
+            return;
+        }
+
+        this.memberChanged = true;
+        changedMembers.computeIfAbsent(enclosingClass, ignored -> new LinkedHashSet<>())
+            .add(enclosingMember);
+    }
+
+    // Remembers an invocation of the member being translated that must be attributed again if the member changes
+    // Invocations that were rewritten or that javac couldn't resolve are attributed again, all the other ones keep their types
+    private void addMemberInvocation(JCPolyExpression expression, boolean rewritten) {
+        if(enclosingMember != null && (rewritten || needsAttribution(expression))){
+            memberInvocations.add(expression);
+        }
+    }
+
+    // Checks if javac failed to resolve an invocation
+    // Anonymous classes are entered again with their member, so their creation is always attributed again
+    private boolean needsAttribution(JCPolyExpression expression) {
+        if(expression instanceof JCMethodInvocation invocation) {
+            return isErroneous(invocation.type) || isErroneous(invocation.meth.type);
+        }
+
+        var initialization = (JCNewClass) expression;
+        return initialization.def != null
+            || isErroneous(initialization.type)
+            || isErroneous(initialization.constructorType);
+    }
+
+    private boolean isErroneous(Type type) {
+        return type == null || type.isErroneous();
+    }
+
+    // Removes the types of the invocations that must be attributed again in the member that was just translated
+    // Local and anonymous classes also forget their old symbols, so that the new ones get the same binary name
+    private void resetMember(int invocationsStart, int classesStart) {
+        for(var index = invocationsStart; index < memberInvocations.size(); index++){
+            if(memberInvocations.get(index) instanceof JCMethodInvocation invocation) {
+                invocation.type = null;
+                invocation.meth.type = null;
+            }else {
+                var initialization = (JCNewClass) memberInvocations.get(index);
+                initialization.type = null;
+                initialization.constructor = null;
+                initialization.constructorType = null;
+            }
+        }
+
+        for(var index = classesStart; index < memberClasses.size(); index++){
+            var classDeclaration = memberClasses.get(index);
+            if(classDeclaration.sym != null){
+                check.removeCompiled(classDeclaration.sym);
+                check.clearLocalClassNameIndexes(classDeclaration.sym);
+            }
+        }
     }
 
     // Handles methods' invocations
     @Override
     public void visitApply(JCMethodInvocation invocation) {
-        var arguments = translateArguments(invocation, invocation.getArguments());
-        invocation.args = List.from(arguments);
+        metrics.increment(Counter.INVOCATIONS_VISITED);
+        var originalArguments = invocation.getArguments();
+        invocation.args = translateArguments(invocation, originalArguments);
+        var rewritten = isRewritten(originalArguments, invocation.args);
+        if(rewritten) {
+            markChanged();
+            metrics.increment(Counter.INVOCATIONS_REWRITTEN);
+            tracer.trace(compilationUnit, invocation, originalArguments);
+        }
+
+        addMemberInvocation(invocation, rewritten);
         super.visitApply(invocation);
     }
 
     // Handle classes' initializations
     @Override
     public void visitNewClass(JCTree.JCNewClass initialization) {
-        var arguments = translateArguments(initialization, initialization.getArguments());
-        initialization.args = List.from(arguments);
+        metrics.increment(Counter.INVOCATIONS_VISITED);
+        var originalArguments = initialization.getArguments();
+        initialization.args = translateArguments(initialization, originalArguments);
+        var rewritten = isRewritten(originalArguments, initialization.args);
+        if(rewritten) {
+            markChanged();
+            metrics.increment(Counter.INVOCATIONS_REWRITTEN);
+            tracer.trace(compilationUnit, initialization, originalArguments);
+        }
+
+        addMemberInvocation(initialization, rewritten);
         super.visitNewClass(initialization);
     }
 
-    // Translates the arguments provided into an ordered collection
-    private Collection<JCExpression> translateArguments(JCPolyExpression expression, List<JCExpression> arguments) {
+    // Checks if the translated arguments are different from the original ones
+    private boolean isRewritten(List<JCExpression> originalArguments, List<JCExpression> arguments) {
+        var original = originalArguments;
+        var translated = arguments;
+        while (original.nonEmpty() && translated.nonEmpty()) {
+            if(original.head != translated.head){
+                return true;
+            }
+
+            original = original.tail;
+            translated = translated.tail;
+        }
+
+        return original.nonEmpty() || translated.nonEmpty();
+    }
+
+    // Translates the arguments provided into the arguments of the invoked method, in the order of its parameters
+    // The original list is returned if nothing needs to change, so that invocations without named arguments don't allocate
+    private List<JCExpression> translateArguments(JCPolyExpression expression, List<JCExpression> arguments) {
         // Get the method symbol of the method referenced by this invocation
         // Non-valid methods are de-attributed as Java's attribution handles them
         var invoked = getSymbol(expression, arguments);
@@ -79,168 +327,298 @@ public class NamedParameterTransformer extends TreeTranslator {
             return arguments;
         }
 
-        // Gets the tree of the method that was invoked
-        // Needed for @Option annotation
-        var invokedTree = trees.getTree(invoked.get());
-        if(invokedTree == null){
-            return arguments;
-        }
-
-        // This map is used as fast access to the expressions associated with a parameter name
-        // A collection is used because of varargs
-        var namedArgsMap = new HashMap<String, Collection<JCAssign>>();
+        // Gets the parameters of the method that was invoked
+        // The symbol is used instead of the tree so that methods of compiled dependencies are supported:
+        // their names come from the MethodParameters attribute and their @Option annotations from the class file
+        var signature = signatures.get(invoked.get());
+
+        // Find the parameter that receives each named argument
+        var size = arguments.size();
+        var named = mapArguments(signature, arguments);
+        try {
+            // If there are no named arguments, the invocation only needs to be translated if default values are missing
+            if(!named && signature.isComplete(size)){
+                return arguments;
+            }
 
-        // This bit set is used to determine if the named argument should be parsed before the positional argument or vice versa
-        // This is important because if the method call looks something like:
-        // void whatever(int... params);
-        // whatever(params=10, 11);
-        // Then we need to remember the order or the values will get mixed up
-        var orderBitSet = new BitSet(arguments.size());
+            // Check if all named arguments have been resolved
+            if(hasUnknownArguments(size)){
+                removeAttributes(expression);
+                return arguments;
+            }
 
-        // A collection of ordered positional arguments
-        var positionalArguments = new ArrayList<JCExpression>();
+            // Now map the parameters to the right argument
+            var results = new ListBuffer<JCExpression>();
+            var next = nextPositional(0, size);
+            for(var index = 0; index < signature.size(); index++){
+                // If the parameter has var args, check whether the named or the positional arguments come first
+                // This is important because if the method call looks something like:
+                // void whatever(int... params);
+                // whatever(params=10, 11);
+                // Then we need to remember the order or the values will get mixed up
+                // If the parameter has var args, the default value isn't needed as it's provided by Javac automatically
+                if(signature.isVarArgs(index)) {
+                    var oldSize = results.size();
+                    if(isNamedFirst(index, size)){
+                        addNamedArguments(results, index, size);
+                        next = addPositionalArguments(results, next, size);
+                    }else {
+                        next = addPositionalArguments(results, next, size);
+                        addNamedArguments(results, index, size);
+                    }
 
-        // Populate the collections defined before
-        for (var index = 0; index < arguments.size(); index++) {
-            var argument = arguments.get(index);
-            if (!(skipParens(argument) instanceof JCAssign assignment)) {
-                positionalArguments.add(argument); // Not an assignment, must be a positional argument
-                continue;
+                    if(oldSize == results.size()){
+                        addDefaultValue(results, expression, signature, index);
+                    }
+                } else if(!addNamedArguments(results, index, size)) {
+                    if (next < size) {
+                        results.append(argumentValues[next]);
+                        next = nextPositional(next + 1, size);
+                    }else {
+                        addDefaultValue(results, expression, signature, index);
+                    }
+                }
             }
 
-            var identifier = getNamedIdentifier(assignment.getVariable());
-            if (identifier.isEmpty()) {
-                positionalArguments.add(argument); // Not an erroneous assigment, must be a positional argument
-                continue;
+            // Check if all positional arguments have been resolved
+            if(next < size){
+                removeAttributes(expression);
+                return arguments;
             }
 
-            var name = identifier.get().getName().toString();
-            var known = namedArgsMap.get(name);
-            if (known != null) {
-                known.add(assignment); // Add the named argument to the ones known(var args)
+            // Return the results
+            return results.toList();
+        }finally {
+            Arrays.fill(argumentValues, 0, size, null);
+        }
+    }
+
+    // Fills the scratch arrays with the parameter that receives each argument and the value to pass
+    // Named arguments are marked as resolved as soon as they match a parameter
+    // Returns whether any argument is named
+    private boolean mapArguments(Signature signature, List<JCExpression> arguments) {
+        var size = arguments.size();
+        if(argumentTargets.length < size){
+            this.argumentTargets = new int[Math.max(size, argumentTargets.length * 2)];
+            this.argumentValues = new JCExpression[argumentTargets.length];
+        }
+
+        var named = false;
+        var index = 0;
+        for(var list = arguments; list.nonEmpty(); list = list.tail, index++){
+            var argument = list.head;
+            var name = getNamedArgument(argument);
+            if(name == null){
+                argumentTargets[index] = POSITIONAL;
+                argumentValues[index] = argument;
                 continue;
             }
 
-            // Add the newly found named argument to the map
-            var collection = new ArrayList<JCAssign>();
-            collection.add(assignment);
-            namedArgsMap.put(name, collection);
-            orderBitSet.set(index);
+            named = true;
+            var assignment = (JCAssign) skipParens(argument);
+            var target = signature.indexOf(name);
+            argumentTargets[index] = target == -1 ? UNKNOWN : target;
+            argumentValues[index] = assignment.getExpression();
+            if(target != -1){
+                diagnostics.markResolved(assignment.getVariable());
+            }
         }
 
-        // Just an iterator to parse positional arguments
-        var positionalArgsIterator = positionalArguments.iterator();
+        return named;
+    }
 
-        // Now map the parameters to the right argument
-        var results = new ArrayList<JCExpression>();
-        for(var index = 0; index < invokedTree.getParameters().size(); index++){
-            // Get the parameter to parse
-            var parameter = invokedTree.getParameters().get(index);
+    // Checks if any named argument doesn't match a parameter
+    private boolean hasUnknownArguments(int size) {
+        for(var index = 0; index < size; index++){
+            if(argumentTargets[index] == UNKNOWN){
+                return true;
+            }
+        }
 
-            // Get the available named argument
-            var namedArgumentName = parameter.getName().toString();
+        return false;
+    }
 
-            // If the parameter has var args, use the bit set to determine what should be done first
-            // If the parameter has var args, the default value isn't needed as it's provided by Javac automatically
-            if(hasVarArgs(parameter)) {
-                var oldSize = results.size();
-                if(orderBitSet.get(index)){
-                    results.addAll(getNamedArguments(namedArgumentName, namedArgsMap));
-                    positionalArgsIterator.forEachRemaining(results::add);
-                    if(oldSize == results.size()){
-                        var defaultValue = getDefaultValue(parameter);
-                        defaultValue.ifPresent(results::add);
-                    }
-                }else {
-                    positionalArgsIterator.forEachRemaining(results::add);
-                    results.addAll(getNamedArguments(namedArgumentName, namedArgsMap));
-                    if(oldSize == results.size()){
-                        var defaultValue = getDefaultValue(parameter);
-                        defaultValue.ifPresent(results::add);
-                    }
-                }
-            } else {
-                var namedArguments = getNamedArguments(namedArgumentName, namedArgsMap);
-                if(!namedArguments.isEmpty()) {
-                    results.addAll(namedArguments);
-                }else if (positionalArgsIterator.hasNext()) {
-                    results.add(positionalArgsIterator.next());
-                }else {
-                    var defaultValue = getDefaultValue(parameter);
-                    defaultValue.ifPresent(results::add);
-                }
+    // Checks if the argument at the position of a varargs parameter is the first named argument for its parameter
+    private boolean isNamedFirst(int index, int size) {
+        if(index >= size || argumentTargets[index] == POSITIONAL){
+            return false;
+        }
+
+        for(var previous = 0; previous < index; previous++){
+            if(argumentTargets[previous] == argumentTargets[index]){
+                return false;
             }
         }
 
-        // Check if all named arguments have been resolved
-        if(!namedArgsMap.isEmpty()){
-            removeAttributes(expression);
-            return arguments;
+        return true;
+    }
+
+    // Returns the index of the next positional argument starting from an index, or size if there are none
+    private int nextPositional(int index, int size) {
+        while (index < size && argumentTargets[index] != POSITIONAL) {
+            index++;
         }
 
-        // Check if all positional arguments have been resolved
-        if(positionalArgsIterator.hasNext()){
-            removeAttributes(expression);
-            return arguments;
+        return index;
+    }
+
+    // Adds all the remaining positional arguments and returns size
+    private int addPositionalArguments(ListBuffer<JCExpression> results, int next, int size) {
+        for(var index = next; index < size; index = nextPositional(index + 1, size)){
+            results.append(argumentValues[index]);
         }
 
-        // Return the results
-        return results;
+        return size;
     }
 
-    private Collection<JCExpression> getNamedArguments(String name, Map<String, Collection<JCAssign>> map) {
-        var namedArguments = map.get(name);
-        if (namedArguments == null) {
-            return List.nil();
+    // Adds the named arguments that target a parameter, more than one is possible because of varargs
+    private boolean addNamedArguments(ListBuffer<JCExpression> results, int parameter, int size) {
+        var found = false;
+        for(var index = 0; index < size; index++){
+            if(argumentTargets[index] == parameter){
+                results.append(argumentValues[index]);
+                found = true;
+            }
         }
 
-        namedArguments.stream()
-            .map(JCAssign::getVariable)
-            .forEach(diagnostics::markResolved);
-        map.remove(name);
-        return namedArguments.stream()
-            .map(JCAssign::getExpression)
-            .toList();
+        return found;
     }
 
-    // Checks if a parameter is varargs
-    private boolean hasVarArgs(JCVariableDecl parameter) {
-        return (parameter.mods.flags & Flags.VARARGS) != 0;
+    // Adds the default value of a parameter, if it has one
+    private void addDefaultValue(ListBuffer<JCExpression> results, JCPolyExpression expression, Signature signature, int index) {
+        var defaultValue = getDefaultValue(expression, signature, index);
+        if(defaultValue != null){
+            results.append(defaultValue);
+            if(allocations && isAllocating(defaultValue, signature.parameter(index).asType())){
+                reportAllocation(expression, signature.parameter(index), defaultValue);
+            }
+        }
+    }
+
+    // Checks if a default value creates an object or an array, or boxes a value that the JLS doesn't require to be cached
+    // Invocations inside the default value may allocate as well, but that can't be known from the tree, so they aren't considered
+    private boolean isAllocating(JCExpression defaultValue, Type type) {
+        var boxedName = type.isPrimitive() ? null : types.unboxedType(type).isPrimitive() ? type.tsym.getSimpleName().toString() : null;
+        var literal = boxedName == null ? null : Annotations.getNumericValue(defaultValue);
+        if(literal != null && Annotations.isBoxingAllocation(boxedName, literal)){
+            return true;
+        }
+
+        var result = new boolean[1];
+        new TreeScanner() {
+            @Override
+            public void visitNewClass(JCNewClass tree) {
+                result[0] = true;
+            }
+
+            @Override
+            public void visitNewArray(JCNewArray tree) {
+                result[0] = true;
+            }
+        }.scan(defaultValue);
+        return result[0];
+    }
+
+    // Warns that an invocation allocates because of the default value of a parameter it omits
+    // The warning is reported on the invocation, in the unit being translated
+    private void reportAllocation(JCPolyExpression expression, VarSymbol parameter, JCExpression defaultValue) {
+        var previousSource = log.useSource(compilationUnit.getSourceFile());
+        try {
+            pluginLog.warning(expression.pos(), "The default value of %s allocates an object at every invocation that omits it: %s".formatted(parameter.name, defaultValue));
+        }finally {
+            log.useSource(previousSource);
+        }
     }
 
     // Gets the default value from the @Option annotation or creates it
-    private Optional<JCExpression> getDefaultValue(JCVariableDecl parameter) {
-        var result = parameter.getModifiers()
-            .getAnnotations()
-            .stream()
-            .filter(Annotations::isOption)
-            .findFirst()
-            .flatMap(Annotations::getDefaultValue)
-            .or(() -> createDefaultValue(parameter));
-        result.ifPresent(diagnostics::markResolved);
-        return result;
+    // Parameters without an @Option annotation are required, so null is returned
+    private JCExpression getDefaultValue(JCPolyExpression expression, Signature signature, int index) {
+        if(!signature.isOptional(index)){
+            return null;
+        }
+
+        var template = signature.defaultValue(index);
+        if(template != null){
+            return annotations.copyDefaultValue(template, nextDefaultPosition(expression.pos));
+        }
+
+        return createDefaultValue(signature.parameter(index), signature.isVarArgs(index));
+    }
+
+    // Returns a position for a default value on the line of the invocation that uses it, so that errors and line numbers refer to that line
+    // Javac caches the type of each argument of an invocation by its position, so two default values can't share one:
+    // the second would get the type of the first. Positions inside a token or in whitespace are never used by a parsed tree,
+    // so they can't match any other argument either
+    // The positions after the invocation are tried first, then the ones before it
+    private int nextDefaultPosition(int position) {
+        if(source == null){
+            return position;
+        }
+
+        for(var candidate = position + 1; candidate < source.length() && !isLineTerminator(candidate); candidate++){
+            if(reserveDefaultPosition(candidate)){
+                return candidate;
+            }
+        }
+
+        for(var candidate = position - 1; candidate > 0 && !isLineTerminator(candidate); candidate--){
+            if(reserveDefaultPosition(candidate)){
+                return candidate;
+            }
+        }
+
+        return position;
+    }
+
+    private boolean reserveDefaultPosition(int position) {
+        if(defaultPositions.get(position) || !isInsideToken(position)){
+            return false;
+        }
+
+        defaultPositions.set(position);
+        return true;
+    }
+
+    private boolean isInsideToken(int position) {
+        var character = source.charAt(position);
+        return Character.isWhitespace(character)
+            || (Character.isJavaIdentifierPart(character) && Character.isJavaIdentifierPart(source.charAt(position - 1)));
+    }
+
+    private boolean isLineTerminator(int position) {
+        var character = source.charAt(position);
+        return character == '\n' || character == '\r';
+    }
+
+    // Reads the source of a unit, javac already cached it when the unit was parsed
+    private CharSequence readSource(JCCompilationUnit compilationUnit) {
+        try {
+            return compilationUnit.getSourceFile().getCharContent(false);
+        }catch (IOException | UnsupportedOperationException exception){
+            return null;
+        }
     }
 
     // Creates the correct default value if none was specified
-    private Optional<JCExpression> createDefaultValue(JCVariableDecl parameter) {
-        var type = parameter.sym.asType();
-        if(hasVarArgs(parameter)){
-            return Optional.empty();
+    // Varargs parameters don't need one, so null is returned
+    private JCExpression createDefaultValue(VarSymbol parameter, boolean varArgs) {
+        var type = parameter.asType();
+        if(varArgs){
+            return null;
         }
 
         if(type instanceof ArrayType arrayType){
             var arrayComponent = maker.Type(arrayType.getComponentType());
             var dimensions = maker.Literal(0);
-            var newArray = maker.NewArray(arrayComponent, List.of(dimensions), null);
-            return Optional.of(newArray);
+            return maker.NewArray(arrayComponent, List.of(dimensions), null);
         }
 
         if(!type.isPrimitive() || type.isErroneous()){
-            return Optional.of(maker.Literal(TypeTag.BOT, null)
-                .setType(symtab.botType));
+            return maker.Literal(TypeTag.BOT, null)
+                .setType(symtab.botType);
         }
 
-        return Optional.of(switch (type.getKind()) {
+        return switch (type.getKind()) {
             case BYTE -> maker.Literal((byte) 0);
             case CHAR -> maker.Literal((char) 0);
             case SHORT -> maker.Literal((short) 0);
@@ -251,7 +629,7 @@ public class NamedParameterTransformer extends TreeTranslator {
             case BOOLEAN -> maker.Literal(false);
             default -> throw new IllegalArgumentException(
                 "Unknown primitive type: %s".formatted(type.getKind().name()));
-        });
+        };
     }
 
     // Attributes the provided invocation using the provided symbol
@@ -277,7 +655,9 @@ public class NamedParameterTransformer extends TreeTranslator {
     }
 
     // Removes all the attributes from an invocation to make javac do its job later
-    private void removeAttributes(JCPolyExpression expression) {
+    protected void removeAttributes(JCPolyExpression expression) {
+        markChanged();
+        metrics.increment(Counter.INVOCATIONS_DEATTRIBUTED);
         if(expression instanceof JCMethodInvocation invocation) {
             setSymbol(invocation.meth, null);
             invocation.meth.type = null;
@@ -315,22 +695,30 @@ public class NamedParameterTransformer extends TreeTranslator {
         // Get the underlying symbol
         var symbol = symbolFor(expression);
 
-        // If it's a method symbol, return it
+        // If it's a method symbol, return it unless an overload matches the named arguments better
         if (symbol instanceof MethodSymbol methodSymbol) {
-            return Optional.of(methodSymbol);
+            var overload = getOverload(methodSymbol, arguments);
+            if(overload.isEmpty()){
+                return Optional.of(methodSymbol);
+            }
+
+            attribute(expression, overload.get());
+            markChanged();
+            return overload;
         }
 
         // If it's a class symbol Javac found an error
         // Obviously a method invocation cannot link to a class
         if(symbol instanceof ClassSymbol classSymbol) {
             // Search for the correct method symbol using non-optional parameters
-            var methodSymbol = getProbableSymbol(arguments, classSymbol);
+            var methodSymbol = getProbableSymbol(expression, arguments, classSymbol);
             if(methodSymbol.isEmpty()){
                 return Optional.empty();
             }
 
             // Attribute and return the possible result
             attribute(expression, methodSymbol.get());
+            markChanged();
 
             // Return it
             return methodSymbol;
@@ -341,54 +729,65 @@ public class NamedParameterTransformer extends TreeTranslator {
     }
 
     // Tries to infer the method symbol from an erroneous one
-    // If a perfect match is found, it will be returned instantly
-    // Otherwise the closest will be chosen
-    private Optional<MethodSymbol> getProbableSymbol(List<JCExpression> arguments, ClassSymbol classSymbol) {
-        var methods = classSymbol.enclClass()
-            .members()
-            .getSymbolsByName(classSymbol.getSimpleName(), symbol -> symbol instanceof MethodSymbol)
-            .iterator();
-        MethodSymbol bestMatch = null;
-        long bestCounter = -1;
-        while (methods.hasNext()){ // This code would be nicer with streams, but less efficient
-            var method = (MethodSymbol) methods.next();
-            var counter = IntStream.range(0, arguments.size())
-                .filter(index -> isAssignable(arguments, method.getParameters(), index))
-                .count();
-            if(counter > bestCounter){
-                bestMatch = method;
-                bestCounter = counter;
+    // If the receiver is erroneous too, for example because it's a named invocation that wasn't translated yet, there is nothing to infer
+    // Javac reports unqualified methods as missing from the class of the invocation,
+    // so they are looked up like javac does: in the innermost class that declares or inherits a method with their name
+    private Optional<MethodSymbol> getProbableSymbol(JCPolyExpression expression, List<JCExpression> arguments, ClassSymbol classSymbol) {
+        var owner = classSymbol.enclClass();
+        if(owner == null){
+            return Optional.empty();
+        }
+
+        var name = classSymbol.getSimpleName();
+        if(expression instanceof JCMethodInvocation invocation && invocation.getMethodSelect() instanceof JCIdent){
+            for(var outer = owner; outer != null; outer = outer.owner.enclClass()){
+                if(overloads.declares(outer, name)){
+                    owner = outer;
+                    break;
+                }
             }
+        }
+
+        return overloads.resolve(owner, name, arguments, getArgumentNames(arguments));
+    }
 
-            if(bestCounter == arguments.size() - 1){
-                break;
+    // Checks if javac chose an overload that doesn't declare the named arguments
+    // Invocations without named arguments are always resolved correctly by javac
+    private Optional<MethodSymbol> getOverload(MethodSymbol methodSymbol, List<JCExpression> arguments) {
+        for(var list = arguments; list.nonEmpty(); list = list.tail){
+            if(getNamedArgument(list.head) != null){
+                return overloads.refine(methodSymbol, arguments, getArgumentNames(arguments));
             }
         }
 
-        return Optional.ofNullable(bestMatch);
+        return Optional.empty();
     }
 
-    // Check if an argument is assignable to a parameter fetching both from a specified collection using the provided index
-    private boolean isAssignable(List<JCExpression> arguments, List<VarSymbol> parameters, int index) {
-        var argument = getOrLast(arguments, index);
-        var parameter = getOrLast(parameters, index);
-        return types.isAssignable(argument.type, parameter.type)
-                || Annotations.hasOptionalModifier(parameter);
+    // Returns the name of each named argument, or null for positional arguments
+    private Name[] getArgumentNames(List<JCExpression> arguments) {
+        var results = new Name[arguments.size()];
+        var index = 0;
+        for(var list = arguments; list.nonEmpty(); list = list.tail){
+            results[index++] = getNamedArgument(list.head);
+        }
+
+        return results;
     }
 
-    // Gets the element at the specified index or the last element in the collection
-    private <T> T getOrLast(List<? extends T> collection, int index){
-        return index < collection.size() ? collection.get(index) :
-            collection.get(collection.size() - 1);
+    // Returns the name of an argument if it's a named argument, otherwise null
+    protected Name getNamedArgument(JCExpression argument) {
+        return skipParens(argument) instanceof JCAssign assignment
+            ? getNamedIdentifier(assignment.getVariable()) : null;
     }
 
     // Assignments are supported in a method invocation
     // For example someMethod(name=1000) is valid if name is a valid identifier
     // This method checks if said identifier exists but is erroneous, meaning it refers to a missing variable
     // Which is exactly what is needed to create named parameters and keep support for assignments
-    private Optional<JCIdent> getNamedIdentifier(JCExpression expression) {
+    // Returns the name of said identifier, or null if the expression isn't one
+    private Name getNamedIdentifier(JCExpression expression) {
         return expression instanceof JCIdent identifier
                 && identifier.sym != null
-                && identifier.sym.asType().getKind() == TypeKind.ERROR ? Optional.of(identifier) : Optional.empty();
+                && identifier.sym.asType().getKind() == TypeKind.ERROR ? identifier.getName() : null;
     }
 }
@@ -0,0 +1,121 @@
+package it.auties.named.plugin;
+
+import com.sun.tools.javac.util.Context;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+// Parses the arguments passed to the plugin, for example -Xplugin:"named trace"
+// Each argument is either a flag(key) or a value(key=value)
+public class PluginArguments {
+    // Writes the rewritten call sites to a file, optionally using the provided path
+    public static final String TRACE = "trace";
+
+    // Writes a JSON summary of the time and allocations of each stage, optionally using the provided path
+    public static final String METRICS = "metrics";
+
+    // Prints a note at the end of the compilation with the number of units that didn't need to be translated
+    public static final String VERBOSE = "verbose";
+
+    // Keeps an index of the scanned source files, so that later compilations don't scan the unchanged ones, optionally using the provided path
+    public static final String INDEX = "index";
+
+    // Writes the names of the parameters of every method to the class files, like -parameters does
+    // Named invocations of a compiled class need them, unless the class was compiled with debug information and the method isn't abstract
+    public static final String PARAMETERS = "parameters";
+
+    // Moves the default values to methods of the classes that declare them, instead of copying them to every invocation
+    public static final String PROVIDERS = "providers";
+
+    // Warns about the invocations that allocate an object because of the default value of a parameter they omit
+    public static final String ALLOCATIONS = "allocations";
+
+    // Chooses when named invocations are translated: attribution(the default) translates them after javac attributes the unit and attributes the changed members again,
+    // enter translates the ones whose callee can be resolved from the entered symbols before javac attributes the unit, so that it's attributed only once
+    public static final String ENGINE = "engine";
+    public static final String ATTRIBUTION_ENGINE = "attribution";
+    public static final String ENTER_ENGINE = "enter";
+
+    private static final Set<String> KNOWN_KEYS = Set.of(TRACE, METRICS, VERBOSE, INDEX, PARAMETERS, PROVIDERS, ALLOCATIONS, ENGINE);
+
+    private final Map<String, String> values;
+
+    public PluginArguments(String... args) {
+        this.values = new HashMap<>();
+        for(var arg : args){
+            var separator = arg.indexOf('=');
+            if(separator == -1){
+                values.put(arg, null);
+            }else {
+                values.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+    }
+
+    // Checks if an argument was provided
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    // Returns the value of an argument, if any was provided
+    public Optional<String> get(String key) {
+        return Optional.ofNullable(values.get(key));
+    }
+
+    // Returns the arguments that this plugin doesn't understand
+    public Set<String> unknownKeys() {
+        return values.keySet()
+            .stream()
+            .filter(key -> !KNOWN_KEYS.contains(key))
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    // Returns the path provided for an argument
+    // If no path was provided, the file is placed next to the class output directory, which is the build directory for most tools
+    // Tools like Maven put the classes of the main and of the test compilation in the same build directory, target/classes and target/test-classes,
+    // so the name of the output directory is added to the default name: named-metrics-classes.json and named-metrics-test-classes.json
+    public Optional<Path> getPath(String key, String defaultName, Context context) {
+        if(!has(key)){
+            return Optional.empty();
+        }
+
+        var value = get(key);
+        if(value.isPresent()){
+            return Optional.of(Path.of(value.get()));
+        }
+
+        var output = getClassOutput(context);
+        if(output == null || output.getParent() == null || output.getFileName() == null){
+            return Optional.of(Path.of(defaultName));
+        }
+
+        var extension = defaultName.lastIndexOf('.');
+        var name = extension == -1 ? "%s-%s".formatted(defaultName, output.getFileName())
+            : "%s-%s%s".formatted(defaultName.substring(0, extension), output.getFileName(), defaultName.substring(extension));
+        return Optional.of(output.getParent().resolve(name));
+    }
+
+    // Finds the class output directory, or null if there is none and the working directory should be used
+    private Path getClassOutput(Context context) {
+        if(!(context.get(JavaFileManager.class) instanceof StandardJavaFileManager fileManager)){
+            return null;
+        }
+
+        try {
+            var outputs = fileManager.getLocationAsPaths(StandardLocation.CLASS_OUTPUT);
+            if(outputs == null || !outputs.iterator().hasNext()){
+                return null;
+            }
+
+            return outputs.iterator().next().toAbsolutePath();
+        }catch (IllegalArgumentException | IllegalStateException exception){
+            return null;
+        }
+    }
+}
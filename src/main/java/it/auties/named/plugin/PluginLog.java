@@ -0,0 +1,48 @@
+package it.auties.named.plugin;
+
+import com.sun.tools.javac.resources.CompilerProperties.Errors;
+import com.sun.tools.javac.resources.CompilerProperties.Notes;
+import com.sun.tools.javac.resources.CompilerProperties.Warnings;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
+import com.sun.tools.javac.util.Log;
+
+// Reports the errors, warnings and notes of the plugin
+// Javac doesn't let plugins add their own diagnostic keys, so every message uses the generic key of annotation processors:
+// all of them start with the same prefix, so they can be told apart from the ones of javac and of annotation processors
+final class PluginLog {
+    private static final Context.Key<PluginLog> pluginLogKey = new Context.Key<>();
+    private static final String PREFIX = "[named] ";
+
+    private final Log log;
+
+    private PluginLog(Context context) {
+        this.log = Log.instance(context);
+        context.put(pluginLogKey, this);
+    }
+
+    static PluginLog instance(Context context) {
+        var instance = context.get(pluginLogKey);
+        return instance != null ? instance : new PluginLog(context);
+    }
+
+    // Reports an error on a tree of the source file currently used by javac's log
+    void error(DiagnosticPosition position, String message) {
+        log.error(position, Errors.ProcMessager(PREFIX + message));
+    }
+
+    // Reports a warning on a tree of the source file currently used by javac's log
+    void warning(DiagnosticPosition position, String message) {
+        log.warning(position, Warnings.ProcMessager(PREFIX + message));
+    }
+
+    // Reports a warning that doesn't refer to a source file
+    void warning(String message) {
+        log.warning(Warnings.ProcMessager(PREFIX + message));
+    }
+
+    // Reports a note that doesn't refer to a source file
+    void note(String message) {
+        log.note(Notes.ProcMessager(PREFIX + message));
+    }
+}
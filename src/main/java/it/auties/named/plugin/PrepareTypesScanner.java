@@ -1,27 +1,32 @@
 package it.auties.named.plugin;
 
-import com.sun.source.tree.AnnotationTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.NewClassTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Type.MethodType;
-import com.sun.tools.javac.tree.JCTree.JCAnnotation;
 import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
 import com.sun.tools.javac.tree.JCTree.JCNewClass;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.List;
-import it.auties.named.util.Annotations;
+import java.util.ArrayList;
 
 // Javac expects the compilation process to terminate after an unrecoverable syntax error has been found
 // Using Diagnostics, though, this behaviour is altered to make the process continue
 // This means that the attribution process will not be completed fully
 // This scanner is used to add some bogus types just to make Javac not crash because of some asserts and/or NPEs
+// It must run before the unit is attributed, as flow analysis reads these types before the plugin gets to translate the unit
 public class PrepareTypesScanner extends TreeScanner<Void, Void> {
     private final Symtab symtab;
+
+    // The bogus types are never modified, attribution replaces them, so a single one is shared by all invocations with the same number of arguments
+    private final ArrayList<MethodType> bogusTypes;
+
     public PrepareTypesScanner(Context context) {
         this.symtab = Symtab.instance(context);
+        this.bogusTypes = new ArrayList<>();
     }
 
     // Bogus types for methods
@@ -29,12 +34,7 @@ public class PrepareTypesScanner extends TreeScanner<Void, Void> {
     public Void visitMethodInvocation(MethodInvocationTree node, Void ignored) {
         var invocation = (JCMethodInvocation) node;
         if(invocation.meth.type == null || invocation.meth.type.isErroneous()){
-            invocation.meth.type = new MethodType(
-                invocation.args.map(e -> symtab.errorType),
-                symtab.errorType,
-                List.nil(),
-                null
-            );
+            invocation.meth.type = getBogusType(invocation.args.size());
         }
 
         return super.visitMethodInvocation(node, ignored);
@@ -45,33 +45,24 @@ public class PrepareTypesScanner extends TreeScanner<Void, Void> {
     public Void visitNewClass(NewClassTree node, Void ignored) {
         var newClass = (JCNewClass) node;
         if(newClass.constructorType == null || newClass.constructorType.isErroneous()){
-            newClass.constructorType = new MethodType(
-                newClass.args.map(e -> symtab.errorType),
-                symtab.errorType,
-                List.nil(),
-                null
-            );
+            newClass.constructorType = getBogusType(newClass.args.size());
         }
 
         return super.visitNewClass(node, ignored);
     }
 
-    // Cache the default value of the annotation and remove its value from the AST to make the compilation process work
-    @Override
-    public Void visitAnnotation(AnnotationTree node, Void unused) {
-        var annotation = (JCAnnotation) node;
-        if(!Annotations.isOption(annotation)){
-            return super.visitAnnotation(node, unused);
-        }
+    // Returns the bogus type of an invocation with the provided number of arguments
+    private MethodType getBogusType(int arguments) {
+        while (bogusTypes.size() <= arguments) {
+            var argumentTypes = List.<Type>nil();
+            for(var index = 0; index < bogusTypes.size(); index++){
+                argumentTypes = argumentTypes.prepend(symtab.errorType);
+            }
 
-        var argument = Annotations.getDefaultValue(annotation);
-        if(argument.isEmpty()){
-            return super.visitAnnotation(node, unused);
+            bogusTypes.add(new MethodType(argumentTypes, symtab.errorType, List.nil(), null));
         }
 
-        annotation.args = List.nil();
-        annotation.attribute = null;
-        return super.visitAnnotation(node, unused);
+        return bogusTypes.get(arguments);
     }
 
     public void scan(Tree tree) {
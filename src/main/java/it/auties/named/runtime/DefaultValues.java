@@ -0,0 +1,330 @@
+package it.auties.named.runtime;
+
+import it.auties.named.annotation.Option;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Creates the handles that return the default values of @Option parameters at runtime
+// The compiler copies a default value to every invocation, but at runtime there is no compiler to evaluate it:
+// literals, references to static fields and invocations of static methods without arguments are supported,
+// which include the holders of constant and invariant default values and the providers created by the providers argument of the plugin
+final class DefaultValues {
+    private static final Pattern MEMBER_REFERENCE = Pattern.compile("[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*(\\.[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*)*(\\(\\))?");
+    private static final Pattern INTEGRAL_LITERAL = Pattern.compile("0[xX][0-9a-fA-F_]+[lL]?|0[bB][01_]+[lL]?|[0-9][0-9_]*[lL]?");
+    private static final Pattern FLOATING_LITERAL = Pattern.compile("([0-9][0-9_]*\\.?[0-9_]*|\\.[0-9][0-9_]*)([eE][+-]?[0-9]+)?[fFdD]?");
+
+    // The empty arrays returned for array parameters without a default value, shared by every invocation
+    private static final ClassValue<Object> EMPTY_ARRAYS = new ClassValue<>() {
+        @Override
+        protected Object computeValue(Class<?> type) {
+            return Array.newInstance(type, 0);
+        }
+    };
+
+    // Returns a handle without parameters that returns the default value of a parameter
+    static MethodHandle create(Executable executable, int index, String value) {
+        var type = executable.getParameterTypes()[index];
+        if(Option.DEFAULT_VALUE.equals(value)){
+            return createImplicit(type);
+        }
+
+        var expression = unwrap(value.strip());
+        var literal = parseLiteral(expression);
+        if(literal != null){
+            return MethodHandles.constant(type, convert(literal.value(), type, value));
+        }
+
+        if(MEMBER_REFERENCE.matcher(expression).matches()){
+            var reference = resolveMember(executable.getDeclaringClass(), expression);
+            if(reference != null){
+                return reference.asType(reference.type().changeReturnType(type));
+            }
+        }
+
+        throw new IllegalArgumentException("Cannot evaluate the default value %s of %s at runtime: only literals and references to static fields and methods are supported, compile it using -Xplugin:\"named providers\"".formatted(value, executable));
+    }
+
+    // Arrays get an empty array, like javac passes to varargs parameters, primitives get zero and objects get null
+    private static MethodHandle createImplicit(Class<?> type) {
+        if(type.isArray()){
+            return MethodHandles.constant(type, EMPTY_ARRAYS.get(type.getComponentType()));
+        }
+
+        return MethodHandles.zero(type);
+    }
+
+    private static String unwrap(String expression) {
+        while (expression.length() > 1 && expression.startsWith("(") && expression.endsWith(")")) {
+            expression = expression.substring(1, expression.length() - 1).strip();
+        }
+
+        return expression;
+    }
+
+    // Parses a Java literal, or returns null if the expression isn't one
+    private static Literal parseLiteral(String expression) {
+        if(expression.equals("null")){
+            return new Literal(null);
+        }
+
+        if(expression.equals("true") || expression.equals("false")){
+            return new Literal(Boolean.parseBoolean(expression));
+        }
+
+        if(expression.length() >= 2 && expression.startsWith("\"") && expression.endsWith("\"")){
+            return new Literal(unescape(expression.substring(1, expression.length() - 1)));
+        }
+
+        if(expression.length() >= 3 && expression.startsWith("'") && expression.endsWith("'")){
+            var content = unescape(expression.substring(1, expression.length() - 1));
+            return content.length() == 1 ? new Literal(content.charAt(0)) : null;
+        }
+
+        var negated = expression.startsWith("-");
+        var number = parseNumber(negated ? unwrap(expression.substring(1).strip()) : expression, negated);
+        return number == null ? null : new Literal(number);
+    }
+
+    private static Number parseNumber(String expression, boolean negated) {
+        var sign = negated ? "-" : "";
+        if(INTEGRAL_LITERAL.matcher(expression).matches()){
+            var digits = expression.replace("_", "");
+            var isLong = digits.endsWith("l") || digits.endsWith("L");
+            if(isLong){
+                digits = digits.substring(0, digits.length() - 1);
+            }
+
+            var radix = 10;
+            if(digits.length() > 1 && (digits.startsWith("0x") || digits.startsWith("0X"))){
+                radix = 16;
+                digits = digits.substring(2);
+            }else if(digits.length() > 1 && (digits.startsWith("0b") || digits.startsWith("0B"))){
+                radix = 2;
+                digits = digits.substring(2);
+            }else if(digits.length() > 1 && digits.startsWith("0")){
+                radix = 8;
+                digits = digits.substring(1);
+            }
+
+            // Literals in other radixes than 10 can represent negative values, like 0xFFFFFFFF
+            if(isLong){
+                return radix == 10 ? Long.parseLong(sign + digits) : Long.parseUnsignedLong(digits, radix) * (negated ? -1 : 1);
+            }
+
+            return radix == 10 ? Integer.parseInt(sign + digits) : Integer.parseUnsignedInt(digits, radix) * (negated ? -1 : 1);
+        }
+
+        if(FLOATING_LITERAL.matcher(expression).matches() && !expression.equals(".")){
+            var digits = expression.replace("_", "");
+            if(digits.endsWith("f") || digits.endsWith("F")){
+                return Float.parseFloat(sign + digits.substring(0, digits.length() - 1));
+            }
+
+            return Double.parseDouble(sign + digits);
+        }
+
+        return null;
+    }
+
+    private static String unescape(String content) {
+        var result = new StringBuilder(content.length());
+        for(var index = 0; index < content.length(); index++){
+            var character = content.charAt(index);
+            if(character != '\\' || index + 1 >= content.length()){
+                result.append(character);
+                continue;
+            }
+
+            var escaped = content.charAt(++index);
+            switch (escaped) {
+                case 'b' -> result.append('\b');
+                case 't' -> result.append('\t');
+                case 'n' -> result.append('\n');
+                case 'f' -> result.append('\f');
+                case 'r' -> result.append('\r');
+                case 's' -> result.append(' ');
+                case 'u' -> {
+                    while (index + 1 < content.length() && content.charAt(index + 1) == 'u') {
+                        index++;
+                    }
+
+                    result.append((char) Integer.parseInt(content.substring(index + 1, index + 5), 16));
+                    index += 4;
+                }
+                default -> {
+                    if(escaped >= '0' && escaped <= '7'){
+                        var end = index + 1;
+                        var maxEnd = Math.min(content.length(), index + (escaped <= '3' ? 3 : 2));
+                        while (end < maxEnd && content.charAt(end) >= '0' && content.charAt(end) <= '7') {
+                            end++;
+                        }
+
+                        result.append((char) Integer.parseInt(content.substring(index, end), 8));
+                        index = end - 1;
+                    }else {
+                        result.append(escaped);
+                    }
+                }
+            }
+        }
+
+        return result.toString();
+    }
+
+    // Converts a literal to the type of the parameter, like the assignment conversions of the compiler
+    private static Object convert(Object value, Class<?> type, String source) {
+        if(value == null){
+            if(type.isPrimitive()){
+                throw new IllegalArgumentException("The default value %s can't be assigned to %s".formatted(source, type.getName()));
+            }
+
+            return null;
+        }
+
+        var primitive = MethodType.methodType(type).unwrap().returnType();
+        if(!primitive.isPrimitive() || primitive == boolean.class || !(value instanceof Number || value instanceof Character)){
+            return value;
+        }
+
+        var number = value instanceof Character character ? (Number) (int) character : (Number) value;
+        if(primitive == byte.class){
+            return number.byteValue();
+        }else if(primitive == short.class){
+            return number.shortValue();
+        }else if(primitive == char.class){
+            return (char) number.intValue();
+        }else if(primitive == int.class){
+            return number.intValue();
+        }else if(primitive == long.class){
+            return number.longValue();
+        }else if(primitive == float.class){
+            return number.floatValue();
+        }else {
+            return number.doubleValue();
+        }
+    }
+
+    // Resolves a reference to a static field or to a static method without parameters
+    // The compiler resolved the reference where the method was invoked, so the class that declares the method is used as a fallback for unqualified names
+    private static MethodHandle resolveMember(Class<?> owner, String expression) {
+        var method = expression.endsWith("()");
+        var reference = method ? expression.substring(0, expression.length() - 2) : expression;
+        var separator = reference.lastIndexOf('.');
+        var memberName = reference.substring(separator + 1);
+        var candidates = separator == -1 ? getEnclosingClasses(owner) : findClasses(owner, reference.substring(0, separator));
+        for(var candidate : candidates){
+            var handle = method ? findStaticMethod(candidate, memberName) : findStaticField(candidate, memberName);
+            if(handle != null){
+                return handle;
+            }
+        }
+
+        return null;
+    }
+
+    private static List<Class<?>> getEnclosingClasses(Class<?> owner) {
+        var results = new ArrayList<Class<?>>();
+        for(var type = owner; type != null; type = type.getEnclosingClass()){
+            results.add(type);
+        }
+
+        return results;
+    }
+
+    // Finds the classes that a qualified or simple name can refer to
+    // Nested classes are separated by a dollar in their binary name, so every split between the package and the classes is tried
+    private static List<Class<?>> findClasses(Class<?> owner, String name) {
+        var prefixes = new ArrayList<String>();
+        prefixes.add("");
+        prefixes.add("java.lang.");
+        if(!owner.getPackageName().isEmpty()){
+            prefixes.add(owner.getPackageName() + ".");
+        }
+
+        for(var type : getEnclosingClasses(owner)){
+            prefixes.add(type.getName() + "$");
+        }
+
+        var results = new ArrayList<Class<?>>();
+        var segments = name.split("\\.");
+        for(var prefix : prefixes){
+            for(var packageSegments = segments.length - 1; packageSegments >= 0; packageSegments--){
+                if(prefix.endsWith("$") && packageSegments != 0){
+                    continue;
+                }
+
+                var binaryName = new StringBuilder(prefix);
+                for(var index = 0; index < segments.length; index++){
+                    if(index != 0){
+                        binaryName.append(index <= packageSegments ? '.' : '$');
+                    }
+
+                    binaryName.append(segments[index]);
+                }
+
+                var type = loadClass(owner, binaryName.toString());
+                if(type != null){
+                    results.add(type);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    private static Class<?> loadClass(Class<?> owner, String name) {
+        try {
+            return Class.forName(name, false, owner.getClassLoader());
+        }catch (ClassNotFoundException | LinkageError exception){
+            return null;
+        }
+    }
+
+    private static MethodHandle findStaticField(Class<?> type, String name) {
+        try {
+            var field = type.getDeclaredField(name);
+            if(!Modifier.isStatic(field.getModifiers())){
+                return null;
+            }
+
+            checkAccess(field);
+            return MethodHandles.lookup().unreflectGetter(field);
+        }catch (NoSuchFieldException | IllegalAccessException exception){
+            return null;
+        }
+    }
+
+    private static MethodHandle findStaticMethod(Class<?> type, String name) {
+        try {
+            var method = type.getDeclaredMethod(name);
+            if(!Modifier.isStatic(method.getModifiers())){
+                return null;
+            }
+
+            checkAccess(method);
+            return MethodHandles.lookup().unreflect(method);
+        }catch (NoSuchMethodException | IllegalAccessException exception){
+            return null;
+        }
+    }
+
+    // Makes a member accessible to this module without bypassing the encapsulation of its module
+    // Members of packages that aren't open to this module can't be invoked, so invokers fail instead of reading them through unsafe
+    static void checkAccess(AccessibleObject member) {
+        if(!member.trySetAccessible()){
+            throw new IllegalArgumentException("Cannot access %s: open its package to %s".formatted(member, DefaultValues.class.getModule()));
+        }
+    }
+
+    private record Literal(Object value) {
+
+    }
+}
@@ -0,0 +1,207 @@
+package it.auties.named.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Invokes methods and constructors using named arguments at runtime, for call sites that only know the names of the arguments when they run,
+// like RPC dispatchers, scripting bridges and factories configured from files
+// The parameters that aren't provided receive the default value of their @Option annotation, like they do in named invocations compiled with the plugin
+// An invoker is a method handle that inserts the default values and permutes the provided arguments into the order of the parameters:
+// it's built once for each member and list of names and cached in the class that declares the member, so repeated invocations cost about as much as a direct call
+// The names of the parameters are read from the class file, so the member must be compiled with the plugin or with -parameters
+// Members that aren't public, and the default values they read, are only accessible if their package is open to this module, or if both are in the unnamed module
+public final class NamedInvoker {
+    // The invokers of the members of each class, indexed by the member and by the names of the arguments in the order they are provided
+    // Invokers for maps are indexed by the set of their names instead, as maps don't have a meaningful order
+    private static final ClassValue<Map<Executable, Map<Object, NamedInvoker>>> INVOKERS = new ClassValue<>() {
+        @Override
+        protected Map<Executable, Map<Object, NamedInvoker>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Executable executable;
+    private final String[] names;
+    private final MethodHandle handle;
+
+    private NamedInvoker(Executable executable, String[] names, MethodHandle handle) {
+        this.executable = executable;
+        this.names = names;
+        this.handle = handle;
+    }
+
+    // Returns an invoker for a method that receives the arguments with the provided names, in this order
+    public static NamedInvoker of(Method method, String... names) {
+        return find(method, List.of(names));
+    }
+
+    // Returns an invoker for a constructor that receives the arguments with the provided names, in this order
+    public static NamedInvoker of(Constructor<?> constructor, String... names) {
+        return find(constructor, List.of(names));
+    }
+
+    // Invokes a method using the provided arguments, indexed by the name of their parameter
+    // The receiver is ignored if the method is static
+    public static Object invoke(Method method, Object receiver, Map<String, ?> arguments) throws Throwable {
+        return find(method, arguments.keySet())
+            .invoke(receiver, arguments);
+    }
+
+    // Creates an instance using a constructor and the provided arguments, indexed by the name of their parameter
+    @SuppressWarnings("unchecked")
+    public static <T> T construct(Constructor<T> constructor, Map<String, ?> arguments) throws Throwable {
+        return (T) find(constructor, arguments.keySet())
+            .invoke(null, arguments);
+    }
+
+    // Invokes the member using arguments in the order of the names of this invoker
+    // The receiver is ignored if the member is static or a constructor
+    public Object invoke(Object receiver, Object... arguments) throws Throwable {
+        if(arguments.length != names.length){
+            throw new IllegalArgumentException("Expected %s arguments for %s, got %s".formatted(names.length, executable, arguments.length));
+        }
+
+        return handle.invokeExact(receiver, arguments);
+    }
+
+    // Invokes the member reading the arguments from a map, the names of this invoker must be its keys
+    private Object invoke(Object receiver, Map<String, ?> arguments) throws Throwable {
+        var values = new Object[names.length];
+        for(var index = 0; index < names.length; index++){
+            values[index] = arguments.get(names[index]);
+        }
+
+        return handle.invokeExact(receiver, values);
+    }
+
+    // Returns the names of the arguments received by this invoker, in the order they must be provided
+    public List<String> names() {
+        return List.of(names);
+    }
+
+    // Finds the cached invoker of a member for a list or a set of names, or creates it
+    private static NamedInvoker find(Executable executable, Object key) {
+        var invokers = INVOKERS.get(executable.getDeclaringClass())
+            .computeIfAbsent(executable, ignored -> new ConcurrentHashMap<>());
+        var cached = invokers.get(key);
+        if(cached != null){
+            return cached;
+        }
+
+        var names = key instanceof List<?> list ? list.toArray(String[]::new) : sortByParameters(executable, (Set<?>) key);
+        var result = create(executable, names);
+        var previous = invokers.putIfAbsent(key instanceof Set<?> set ? Set.copyOf(set) : key, result);
+        return previous != null ? previous : result;
+    }
+
+    // Orders the names of a map like the parameters, so that the invoker doesn't need to permute them
+    private static String[] sortByParameters(Executable executable, Set<?> names) {
+        var results = new String[names.size()];
+        var index = 0;
+        for(var parameter : executable.getParameters()){
+            if(names.contains(parameter.getName())){
+                results[index++] = parameter.getName();
+            }
+        }
+
+        if(index != results.length){
+            var unknown = names.stream()
+                .filter(name -> Arrays.stream(results).noneMatch(name::equals))
+                .toList();
+            throw new IllegalArgumentException("%s has no parameters named %s".formatted(executable, unknown));
+        }
+
+        return results;
+    }
+
+    // Builds the handle of an invoker: (Object receiver, Object[] arguments)Object
+    private static NamedInvoker create(Executable executable, String[] names) {
+        var parameters = executable.getParameters();
+        if(parameters.length != 0 && !parameters[0].isNamePresent()){
+            throw new IllegalArgumentException("The names of the parameters of %s aren't available: compile it with the named plugin or with -parameters".formatted(executable));
+        }
+
+        // Find the argument that each parameter receives
+        var arguments = new int[parameters.length];
+        Arrays.fill(arguments, -1);
+        for(var index = 0; index < names.length; index++){
+            var parameter = indexOf(parameters, names[index]);
+            if(parameter == -1){
+                throw new IllegalArgumentException("%s has no parameter named %s".formatted(executable, names[index]));
+            }
+
+            if(arguments[parameter] != -1){
+                throw new IllegalArgumentException("The argument %s was provided more than once".formatted(names[index]));
+            }
+
+            arguments[parameter] = index;
+        }
+
+        // Replace the parameters that weren't provided with their default value, starting from the last so that the positions don't change
+        var options = OptionReader.read(executable);
+        var handle = unreflect(executable);
+        for(var parameter = parameters.length - 1; parameter >= 0; parameter--){
+            if(arguments[parameter] != -1){
+                continue;
+            }
+
+            if(options[parameter] == null){
+                throw new IllegalArgumentException("Missing argument for the required parameter %s of %s".formatted(parameters[parameter].getName(), executable));
+            }
+
+            handle = MethodHandles.collectArguments(handle, 1 + parameter, DefaultValues.create(executable, parameter, options[parameter]));
+        }
+
+        // Permute the provided arguments from the order of the names into the order of the parameters
+        var reorder = new int[1 + names.length];
+        var position = 1;
+        for(var argument : arguments){
+            if(argument != -1){
+                reorder[position++] = 1 + argument;
+            }
+        }
+
+        var genericType = MethodType.genericMethodType(1 + names.length);
+        handle = MethodHandles.permuteArguments(handle.asType(genericType), genericType, reorder)
+            .asSpreader(Object[].class, names.length);
+        return new NamedInvoker(executable, names, handle);
+    }
+
+    private static int indexOf(Parameter[] parameters, String name) {
+        for(var index = 0; index < parameters.length; index++){
+            if(parameters[index].getName().equals(name)){
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    // Returns a handle of fixed arity that takes a receiver followed by the parameters, the receiver is dropped for static members and constructors
+    private static MethodHandle unreflect(Executable executable) {
+        try {
+            DefaultValues.checkAccess(executable);
+            var lookup = MethodHandles.lookup();
+            if(executable instanceof Method method){
+                var handle = lookup.unreflect(method).asFixedArity();
+                return Modifier.isStatic(method.getModifiers()) ? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+            }
+
+            var handle = lookup.unreflectConstructor((Constructor<?>) executable).asFixedArity();
+            return MethodHandles.dropArguments(handle, 0, Object.class);
+        }catch (IllegalAccessException exception){
+            throw new IllegalArgumentException("Cannot access %s".formatted(executable), exception);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package it.auties.named.runtime;
+
+import it.auties.named.annotation.Option;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+// Reads the @Option annotations of the parameters of a class from its class file
+// The annotation has class retention, so it's written to the class file but reflection can't see it
+// The class file of each class is read once, the first time one of its members is invoked
+final class OptionReader {
+    private static final String OPTION_DESCRIPTOR = "L%s;".formatted(Option.class.getName().replace('.', '/'));
+    private static final String PARAMETER_ANNOTATIONS = "RuntimeInvisibleParameterAnnotations";
+    private static final String CONSTRUCTOR_NAME = "<init>";
+
+    // The @Option values of the parameters of each method of a class, indexed by the name and descriptor of the method
+    private static final ClassValue<Map<String, String[]>> OPTIONS = new ClassValue<>() {
+        @Override
+        protected Map<String, String[]> computeValue(Class<?> type) {
+            return readClass(type);
+        }
+    };
+
+    // Returns the value of the @Option annotation of each parameter of a method or constructor
+    // Required parameters are null, optional parameters without a value are Option.DEFAULT_VALUE
+    static String[] read(Executable executable) {
+        var options = OPTIONS.get(executable.getDeclaringClass())
+            .get(getKey(executable));
+        var results = new String[executable.getParameterCount()];
+        if(options == null){
+            return results;
+        }
+
+        // Javac doesn't annotate synthetic and mandated parameters, like the outer instance of an inner class, which come first
+        var offset = results.length - options.length;
+        for(var index = 0; index < options.length && offset + index >= 0; index++){
+            results[offset + index] = options[index];
+        }
+
+        return results;
+    }
+
+    private static String getKey(Executable executable) {
+        var descriptor = MethodType.methodType(executable instanceof Method method ? method.getReturnType() : void.class, executable.getParameterTypes())
+            .toMethodDescriptorString();
+        return (executable instanceof Constructor<?> ? CONSTRUCTOR_NAME : executable.getName()) + descriptor;
+    }
+
+    private static Map<String, String[]> readClass(Class<?> type) {
+        var name = type.getName();
+        var resource = "%s.class".formatted(name.substring(name.lastIndexOf('.') + 1));
+        try(var stream = type.getResourceAsStream(resource)) {
+            if(stream == null){
+                return Map.of();
+            }
+
+            return readClass(new DataInputStream(new ByteArrayInputStream(stream.readAllBytes())));
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot read the class file of %s".formatted(name), exception);
+        }
+    }
+
+    private static Map<String, String[]> readClass(DataInputStream input) throws IOException {
+        if(input.readInt() != 0xCAFEBABE){
+            return Map.of();
+        }
+
+        input.skipBytes(4);
+        var constants = readConstants(input);
+        input.skipBytes(6);
+        input.skipBytes(input.readUnsignedShort() * 2);
+        var fields = input.readUnsignedShort();
+        for(var field = 0; field < fields; field++){
+            input.skipBytes(6);
+            skipAttributes(input);
+        }
+
+        var results = new HashMap<String, String[]>();
+        var methods = input.readUnsignedShort();
+        for(var method = 0; method < methods; method++){
+            input.skipBytes(2);
+            var key = (String) constants[input.readUnsignedShort()] + constants[input.readUnsignedShort()];
+            var attributes = input.readUnsignedShort();
+            for(var attribute = 0; attribute < attributes; attribute++){
+                var attributeName = constants[input.readUnsignedShort()];
+                var length = input.readInt();
+                if(PARAMETER_ANNOTATIONS.equals(attributeName)){
+                    results.put(key, readParameterAnnotations(input, constants));
+                }else {
+                    input.skipBytes(length);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    // Reads the constant pool, only UTF8, numeric and string entries are kept
+    private static Object[] readConstants(DataInputStream input) throws IOException {
+        var constants = new Object[input.readUnsignedShort()];
+        for(var index = 1; index < constants.length; index++){
+            var tag = input.readUnsignedByte();
+            switch (tag) {
+                case 1 -> constants[index] = input.readUTF();
+                case 3 -> constants[index] = input.readInt();
+                case 4 -> constants[index] = input.readFloat();
+                case 5 -> constants[index++] = input.readLong();
+                case 6 -> constants[index++] = input.readDouble();
+                case 7, 8, 16, 19, 20 -> input.skipBytes(2);
+                case 15 -> input.skipBytes(3);
+                case 9, 10, 11, 12, 17, 18 -> input.skipBytes(4);
+                default -> throw new IOException("Unknown constant pool tag: %s".formatted(tag));
+            }
+        }
+
+        return constants;
+    }
+
+    private static void skipAttributes(DataInputStream input) throws IOException {
+        var attributes = input.readUnsignedShort();
+        for(var attribute = 0; attribute < attributes; attribute++){
+            input.skipBytes(2);
+            input.skipBytes(input.readInt());
+        }
+    }
+
+    // Reads the value of the @Option annotation of each parameter
+    private static String[] readParameterAnnotations(DataInputStream input, Object[] constants) throws IOException {
+        var results = new String[input.readUnsignedByte()];
+        for(var parameter = 0; parameter < results.length; parameter++){
+            var annotations = input.readUnsignedShort();
+            for(var annotation = 0; annotation < annotations; annotation++){
+                var option = OPTION_DESCRIPTOR.equals(constants[input.readUnsignedShort()]);
+                var value = Option.DEFAULT_VALUE;
+                var pairs = input.readUnsignedShort();
+                for(var pair = 0; pair < pairs; pair++){
+                    var pairName = constants[input.readUnsignedShort()];
+                    var pairValue = readElementValue(input, constants);
+                    if("value".equals(pairName) && pairValue instanceof String string){
+                        value = string;
+                    }
+                }
+
+                if(option){
+                    results[parameter] = value;
+                }
+            }
+        }
+
+        return results;
+    }
+
+    // Reads an element value, only constants are returned
+    private static Object readElementValue(DataInputStream input, Object[] constants) throws IOException {
+        var tag = input.readUnsignedByte();
+        switch (tag) {
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z', 's' -> {
+                return constants[input.readUnsignedShort()];
+            }
+            case 'e' -> input.skipBytes(4);
+            case 'c' -> input.skipBytes(2);
+            case '@' -> {
+                input.skipBytes(2);
+                var pairs = input.readUnsignedShort();
+                for(var pair = 0; pair < pairs; pair++){
+                    input.skipBytes(2);
+                    readElementValue(input, constants);
+                }
+            }
+            case '[' -> {
+                var values = input.readUnsignedShort();
+                for(var value = 0; value < values; value++){
+                    readElementValue(input, constants);
+                }
+            }
+            default -> throw new IOException("Unknown element value tag: %s".formatted((char) tag));
+        }
+
+        return null;
+    }
+}
@@ -1,44 +1,329 @@
 package it.auties.named.util;
 
-import static com.sun.tools.javac.util.List.nil;
-
+import com.sun.tools.javac.code.Attribute;
+import com.sun.tools.javac.code.Flags;
 import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.parser.ParserFactory;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCAnnotation;
+import com.sun.tools.javac.tree.JCTree.JCArrayTypeTree;
+import com.sun.tools.javac.tree.JCTree.JCAssign;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
 import com.sun.tools.javac.tree.JCTree.JCExpression;
 import com.sun.tools.javac.tree.JCTree.JCLiteral;
+import com.sun.tools.javac.tree.JCTree.JCUnary;
+import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
+import com.sun.tools.javac.tree.TreeCopier;
 import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.tree.TreeMaker;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.Names;
 import it.auties.named.annotation.Option;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+// Handles the default values of the @Option annotations of a compilation
+// Right after a unit is parsed, each default value is replaced by a string literal that contains its source
+// so that the annotation can be attributed like any other and the default value is written to the class file:
+// named invocations can then use the default values of both the sources being compiled and compiled dependencies
+// The parsed default values are scoped to the javac context, which is discarded when the task is over
 public class Annotations {
-  private final static Map<JCAnnotation, JCExpression> annotations = new HashMap<>();
+  private static final Context.Key<Annotations> annotationsKey = new Context.Key<>();
+
+  // The prefix of the names of the classes that hold invariant default values and the name of their field
+  // The rest of the name identifies the parameter, so that it doesn't change when the members of the class are reordered
+  private static final String HOLDER_PREFIX = "$Default";
+  private static final String HOLDER_FIELD = "VALUE";
+
+  // The prefix of the names of the classes that hold constant default values, the rest of the name identifies the parameter like the one of invariant holders
+  private static final String CONSTANT_PREFIX = "$Constant";
+
+  // The boxed types whose valueOf method caches the values between -128 and 127, as required by the JLS
+  private static final Set<String> CACHED_BOXES = Set.of("Short", "Integer", "Long");
+
+  // The prefix of the names of the methods that provide default values, the rest of the name identifies the parameter like the one of holders
+  private static final String PROVIDER_PREFIX = "$default";
+
+  private final ParserFactory parserFactory;
+  private final TreeMaker maker;
+  private final Names names;
+  private final TreeCopier<Void> copier;
+  private final Map<String, JCExpression> defaultValues;
+
+  private Annotations(Context context) {
+    this.parserFactory = ParserFactory.instance(context);
+    this.maker = TreeMaker.instance(context);
+    this.names = Names.instance(context);
+    this.copier = new TreeCopier<>(maker);
+    this.defaultValues = new HashMap<>();
+    context.put(annotationsKey, this);
+  }
+
+  public static Annotations instance(Context context) {
+    var instance = context.get(annotationsKey);
+    return instance != null ? instance : new Annotations(context);
+  }
 
-  public static Optional<JCExpression> getDefaultValue(JCAnnotation annotation){
-    var cached = annotations.get(annotation);
-    if(annotations.get(annotation) != null){
-      return Optional.of(cached);
+  // Replaces the default value of an @Option annotation with a string literal that contains its source
+  public void encodeDefaultValue(JCAnnotation annotation){
+    var value = findValue(annotation);
+    if(value == null){
+      return;
     }
 
-    if(!isOption(annotation)
-        || annotation.getArguments() == null
-        || annotation.getArguments().isEmpty()){
-      return Optional.empty();
+    replaceValue(annotation, maker.at(value.pos).Literal(value.toString()));
+  }
+
+  // Moves the default value of an invariant @Option parameter to a holder class nested in the class that declares the method
+  // The JVM initializes the holder the first time its field is read and only once, so the default value is evaluated lazily and thread safely
+  // The annotation then contains a reference to the field of the holder, so invocations that omit the parameter, even from other compilations, read the cached value
+  // Holders are visible like the method, so that any invocation that can omit the parameter can also read its value
+  // The name of the holder is derived from the name of the parameter, so classes compiled against another version of the owner keep reading the value of the same parameter
+  public void encodeInvariantDefaultValue(JCAnnotation annotation, JCVariableDecl parameter, JCClassDecl owner, String ownerName, String parameterName, boolean exported){
+    var value = findValue(annotation);
+    if(value == null){
+      return;
+    }
+
+    var holder = addHolder(owner, HOLDER_PREFIX + parameterName, copier.copy(parameter.vartype), value, exported);
+    replaceValue(annotation, maker.at(value.pos).Literal("%s.%s.%s".formatted(ownerName, holder.name, HOLDER_FIELD)));
+  }
+
+  // Sets the default value of an @Option parameter to a constant held by a class nested in the class that declares the method
+  // Constants are immutable, like empty arrays and boxed values, so invocations that omit the parameter read the constant instead of allocating a new value every time
+  // Each parameter has its own holder, named like the ones of invariant values, so classes compiled against another version of the owner keep reading the constant of the same parameter
+  public void encodeConstantDefaultValue(JCAnnotation annotation, JCVariableDecl parameter, JCExpression value, JCClassDecl owner, String ownerName, String parameterName, boolean exported){
+    var holder = addHolder(owner, CONSTANT_PREFIX + parameterName, copier.copy(parameter.vartype), value, exported);
+    replaceValue(annotation, maker.at(value.pos).Literal("%s.%s.%s".formatted(ownerName, holder.name, HOLDER_FIELD)));
+  }
+
+  // Creates an empty array of an array type, which is immutable
+  public JCExpression createEmptyArray(JCArrayTypeTree type, int position){
+    return maker.at(position).NewArray(copier.copy(type.elemtype), List.of(maker.Literal(0)), null);
+  }
+
+  // Adds a class that holds a value in a static final field to a class
+  private JCClassDecl addHolder(JCClassDecl owner, String name, JCExpression type, JCExpression value, boolean exported){
+    var holderName = names.fromString(name);
+    var flags = Flags.STATIC | Flags.FINAL | (exported ? Flags.PUBLIC : 0);
+    var field = maker.at(value.pos).VarDef(
+        maker.Modifiers(flags),
+        names.fromString(HOLDER_FIELD),
+        type,
+        value
+    );
+    var holder = maker.at(value.pos).ClassDef(
+        maker.Modifiers(flags),
+        holderName,
+        List.nil(),
+        null,
+        List.nil(),
+        List.of(field)
+    );
+    owner.defs = owner.defs.append(holder);
+    return holder;
+  }
+
+  // Returns the value of a numeric or character literal, optionally negated, or null if the expression isn't one
+  public static Object getNumericValue(JCExpression expression){
+    var value = TreeInfo.skipParens(expression);
+    var negated = value instanceof JCUnary unary && unary.getTag() == JCTree.Tag.NEG;
+    if(negated){
+      value = TreeInfo.skipParens(((JCUnary) value).getExpression());
+    }
+
+    if(!(value instanceof JCLiteral literal)){
+      return null;
+    }
+
+    var result = literal.getValue();
+    if(!negated){
+      return result instanceof Number || result instanceof Character ? result : null;
+    }
+
+    if(result instanceof Integer number){
+      return -number;
+    }else if(result instanceof Long number){
+      return -number;
+    }else if(result instanceof Float number){
+      return -number;
+    }else if(result instanceof Double number){
+      return -number;
+    }else {
+      return null;
+    }
+  }
+
+  // Checks if boxing a numeric or character value into a boxed type may allocate a new object
+  // The JLS requires the boxes of booleans, bytes, of characters up to 127 and of integral values between -128 and 127 to be cached
+  public static boolean isBoxingAllocation(String boxedName, Object value){
+    return switch (boxedName) {
+      case "Boolean", "Byte" -> false;
+      case "Character" -> !(value instanceof Character character) || character > 127;
+      case "Float", "Double" -> true;
+      default -> !CACHED_BOXES.contains(boxedName)
+          || !(value instanceof Integer || value instanceof Long)
+          || ((Number) value).longValue() < -128
+          || ((Number) value).longValue() > 127;
+    };
+  }
+
+  // Moves the default value of an @Option parameter to a static method of the class that declares the method
+  // The annotation then contains an invocation of the provider, so every invocation that omits the parameter only contains a call
+  // instead of a copy of the whole expression, which keeps the bytecode of the callers small enough to be inlined by the JIT
+  // Providers are visible like the method, so that any invocation that can omit the parameter can also call them
+  // The name of the provider is derived from the name of the parameter, like the one of holders, so classes compiled against another version of the owner keep calling the provider of the same parameter
+  public void encodeProvidedDefaultValue(JCAnnotation annotation, JCVariableDecl parameter, JCClassDecl owner, String ownerName, String parameterName, boolean exported){
+    var value = findValue(annotation);
+    if(value == null){
+      return;
+    }
+
+    var providerName = names.fromString(PROVIDER_PREFIX + parameterName);
+    var provider = maker.at(value.pos).MethodDef(
+        maker.Modifiers(Flags.STATIC | (exported ? Flags.PUBLIC : 0)),
+        providerName,
+        copier.copy(parameter.vartype),
+        List.nil(),
+        List.nil(),
+        List.nil(),
+        maker.at(value.pos).Block(0, List.of(maker.at(value.pos).Return(value))),
+        null
+    );
+    owner.defs = owner.defs.append(provider);
+    replaceValue(annotation, maker.at(value.pos).Literal("%s.%s()".formatted(ownerName, providerName)));
+  }
+
+  // Returns the default value specified by an @Option annotation, or null if none was specified
+  public static JCExpression findValue(JCAnnotation annotation){
+    if(!isOption(annotation) || annotation.getArguments() == null){
+      return null;
     }
 
-    var argument = annotation.getArguments().head;
-    var value = argument instanceof JCTree.JCAssign assignment
-        ? assignment.getExpression() : argument;
-    if(TreeInfo.skipParens(value) instanceof JCLiteral literal
-        && literal.getValue() == Option.DEFAULT_VALUE){
+    for(var argument : annotation.getArguments()){
+      var value = getValue(argument);
+      if(value != null){
+        return TreeInfo.skipParens(value) instanceof JCLiteral literal && Option.DEFAULT_VALUE.equals(literal.getValue()) ? null : value;
+      }
+    }
+
+    return null;
+  }
+
+  // Returns the expression of the value element of an annotation argument, or null if the argument specifies another element
+  private static JCExpression getValue(JCExpression argument){
+    if(!(argument instanceof JCAssign assignment)){
+      return argument;
+    }
+
+    return TreeInfo.name(assignment.getVariable()).contentEquals("value") ? assignment.getExpression() : null;
+  }
+
+  // Replaces the value element of an annotation, keeping the other elements
+  // If the annotation doesn't specify a value, it's added
+  private void replaceValue(JCAnnotation annotation, JCExpression value){
+    var arguments = annotation.getArguments() == null ? List.<JCExpression>nil() : annotation.getArguments();
+    if(arguments.stream().allMatch(argument -> getValue(argument) == null)){
+      annotation.args = arguments.prepend(maker.at(value.pos).Assign(maker.Ident(names.value), value));
+      return;
+    }
+
+    annotation.args = arguments.map(argument -> replaceValue(argument, value));
+  }
+
+  private JCExpression replaceValue(JCExpression argument, JCExpression value){
+    if(getValue(argument) == null){
+      return argument;
+    }
+
+    return argument instanceof JCAssign assignment
+        ? maker.at(assignment.pos).Assign(assignment.getVariable(), value) : value;
+  }
+
+  // Checks if an @Option annotation marks its default value as invariant
+  public static boolean isInvariant(JCAnnotation annotation){
+    if(!isOption(annotation) || annotation.getArguments() == null){
+      return false;
+    }
+
+    for(var argument : annotation.getArguments()){
+      if(argument instanceof JCAssign assignment
+          && TreeInfo.name(assignment.getVariable()).contentEquals("invariant")
+          && TreeInfo.skipParens(assignment.getExpression()) instanceof JCLiteral literal){
+        return Boolean.TRUE.equals(literal.getValue());
+      }
+    }
+
+    return false;
+  }
+
+  // Returns the parsed default value of a parameter, if one was specified
+  // The result is a template shared by all the invocations of the method: use copyDefaultValue before adding it to an invocation
+  public Optional<JCExpression> getDefaultValue(VarSymbol parameter){
+    var value = getOptionValue(parameter);
+    if(value == null || Option.DEFAULT_VALUE.equals(value)){
       return Optional.empty();
     }
 
-    annotations.put(annotation, value);
-    annotation.args = nil();
-    return Optional.of(value);
+    return Optional.of(defaultValues.computeIfAbsent(value, this::parseDefaultValue));
+  }
+
+  // Returns the value of the @Option annotation of a parameter, or null if it isn't specified
+  private static String getOptionValue(VarSymbol parameter){
+    var option = findOption(parameter);
+    if(option == null){
+      return null;
+    }
+
+    for(var pair : option.values){
+      if(pair.fst.name.contentEquals("value") && pair.snd.getValue() instanceof String value){
+        return value;
+      }
+    }
+
+    return null;
+  }
+
+  // Finds the @Option annotation of a parameter
+  // The attribute is read directly: Symbol.getAnnotation creates a dynamic proxy, which is slow the first time
+  private static Attribute.Compound findOption(VarSymbol parameter){
+    for(var annotation : parameter.getRawAttributes()){
+      if(annotation.type.tsym.getQualifiedName().contentEquals(Option.class.getName())){
+        return annotation;
+      }
+    }
+
+    return null;
+  }
+
+  // Returns a new tree for a default value
+  // The tree is positioned at the invocation that uses it, so that any error is reported there
+  public JCExpression copyDefaultValue(JCExpression template, int position){
+    var result = copier.copy(template);
+    new TreeScanner(){
+      @Override
+      public void scan(JCTree tree) {
+        if(tree != null){
+          tree.pos = position;
+          super.scan(tree);
+        }
+      }
+    }.scan(result);
+    return result;
+  }
+
+  private JCExpression parseDefaultValue(String value) {
+    return parserFactory.newParser(value, false, false, false)
+        .parseExpression();
+  }
+
+  // Releases the parsed default values, the task may be kept alive after the compilation is over
+  public void clear() {
+    defaultValues.clear();
   }
 
   public static boolean isOption(JCAnnotation annotation) {
@@ -47,6 +332,6 @@ public class Annotations {
   }
 
   public static boolean hasOptionalModifier(VarSymbol parameter) {
-    return parameter.getAnnotation(Option.class) != null;
+    return findOption(parameter) != null;
   }
-}
\ No newline at end of file
+}
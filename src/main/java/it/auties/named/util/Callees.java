@@ -0,0 +1,337 @@
+package it.auties.named.util;
+
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.model.JavacElements;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCAnnotatedType;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCFieldAccess;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import com.sun.tools.javac.tree.JCTree.JCNewClass;
+import com.sun.tools.javac.tree.JCTree.JCPolyExpression;
+import com.sun.tools.javac.tree.JCTree.JCTypeApply;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import it.auties.named.util.MethodSignatures.Signature;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Finds the methods and constructors that an invocation may refer to before javac attributes it
+// Only the symbols entered by javac are used, as the bodies of the members weren't attributed yet:
+// the callees of an unqualified method are found using the rules of the JLS, that is in the innermost class that declares a method with that name or in the static imports,
+// the callees of a qualified method are found only if the qualifier is this, super, a type or a field, as the type of any other expression isn't known yet
+// Whenever the result may depend on a local variable, a local class or a type variable, no callee is returned and the invocation is left to javac
+public class Callees {
+    private final Types types;
+    private final Names names;
+    private final JavacElements elements;
+    private final MethodSignatures signatures;
+
+    public Callees(Context context, MethodSignatures signatures) {
+        this.types = Types.instance(context);
+        this.names = Names.instance(context);
+        this.elements = JavacElements.instance(context);
+        this.signatures = signatures;
+    }
+
+    // Returns the methods or constructors that an invocation may refer to, or an empty list if they can't be known before attribution
+    public List<MethodSymbol> find(Scope scope, JCPolyExpression expression) {
+        if(expression instanceof JCMethodInvocation invocation) {
+            return findMethods(scope, invocation.getMethodSelect());
+        }
+
+        if(expression instanceof JCNewClass initialization) {
+            return findConstructors(scope, initialization);
+        }
+
+        return List.of();
+    }
+
+    private List<MethodSymbol> findMethods(Scope scope, JCExpression method) {
+        if(method instanceof JCIdent identifier) {
+            if(identifier.name == names._this) {
+                return getConstructors(scope.owner());
+            }
+
+            if(identifier.name == names._super) {
+                return getConstructors(getSuperclass(scope.owner()));
+            }
+
+            return findUnqualifiedMethods(scope, identifier.name);
+        }
+
+        if(!(method instanceof JCFieldAccess fieldAccess)) {
+            return List.of();
+        }
+
+        var qualifier = fieldAccess.getExpression();
+        if(qualifier instanceof JCIdent identifier && identifier.name == names._this) {
+            return getMethods(scope, scope.owner(), fieldAccess.name);
+        }
+
+        if(qualifier instanceof JCIdent identifier && identifier.name == names._super) {
+            return getMethods(scope, getSuperclass(scope.owner()), fieldAccess.name);
+        }
+
+        return getMethods(scope, findQualifier(scope, qualifier), fieldAccess.name);
+    }
+
+    // Qualified creations, like outer.new Inner(), and anonymous classes are left to javac
+    private List<MethodSymbol> findConstructors(Scope scope, JCNewClass initialization) {
+        if(initialization.getEnclosingExpression() != null || initialization.getClassBody() != null) {
+            return List.of();
+        }
+
+        return getConstructors(findType(scope, initialization.getIdentifier()));
+    }
+
+    // An unqualified method is looked up in the innermost class that declares or inherits a method with its name, then in the static imports
+    private List<MethodSymbol> findUnqualifiedMethods(Scope scope, Name name) {
+        for(var owner = scope.owner(); owner != null; owner = getOuterClass(owner)) {
+            var results = getMethods(scope, owner, name);
+            if(!results.isEmpty()) {
+                return results;
+            }
+        }
+
+        var results = getImportedMethods(scope.unit().namedImportScope, name);
+        return !results.isEmpty() ? results : getImportedMethods(scope.unit().starImportScope, name);
+    }
+
+    private List<MethodSymbol> getImportedMethods(com.sun.tools.javac.code.Scope importScope, Name name) {
+        var results = new ArrayList<MethodSymbol>();
+        for(var symbol : importScope.getSymbolsByName(name, symbol -> symbol instanceof MethodSymbol && symbol.isStatic())) {
+            results.add((MethodSymbol) symbol);
+        }
+
+        return results;
+    }
+
+    // Returns the class whose members are selected by a qualifier, or null if it isn't known yet
+    // A simple name is a variable before being a type, so fields are considered first
+    private ClassSymbol findQualifier(Scope scope, JCExpression qualifier) {
+        if(!(qualifier instanceof JCIdent identifier)) {
+            return findType(scope, qualifier);
+        }
+
+        if(scope.locals().contains(identifier.name)) {
+            return null;
+        }
+
+        var field = findField(scope, identifier.name);
+        if(field.isEmpty()) {
+            return findType(scope, qualifier);
+        }
+
+        var type = field.get().type;
+        return type != null && type.hasTag(TypeTag.CLASS) ? (ClassSymbol) type.tsym : null;
+    }
+
+    // Checks if a simple name may refer to a variable instead of being the name of a named argument
+    public boolean isVariable(Scope scope, Name name) {
+        return scope.locals().contains(name) || findField(scope, name).isPresent();
+    }
+
+    // Finds the field that a simple name refers to, if any, in the innermost class that declares or inherits it, then in the static imports
+    private Optional<VarSymbol> findField(Scope scope, Name name) {
+        for(var owner = scope.owner(); owner != null; owner = getOuterClass(owner)) {
+            for(var type : types.closure(owner.type)) {
+                var field = type.tsym.members().findFirst(name, symbol -> symbol instanceof VarSymbol);
+                if(field != null) {
+                    return Optional.of((VarSymbol) field);
+                }
+            }
+        }
+
+        var field = scope.unit().namedImportScope.findFirst(name, symbol -> symbol instanceof VarSymbol);
+        if(field == null) {
+            field = scope.unit().starImportScope.findFirst(name, symbol -> symbol instanceof VarSymbol);
+        }
+
+        return Optional.ofNullable((VarSymbol) field);
+    }
+
+    // Returns the class that a type refers to, or null if it isn't known yet
+    private ClassSymbol findType(Scope scope, JCTree type) {
+        if(type instanceof JCTypeApply typeApply) {
+            return findType(scope, typeApply.getType());
+        }
+
+        if(type instanceof JCAnnotatedType annotatedType) {
+            return findType(scope, annotatedType.getUnderlyingType());
+        }
+
+        if(type instanceof JCIdent identifier) {
+            return findType(scope, identifier.name);
+        }
+
+        if(!(type instanceof JCFieldAccess fieldAccess)) {
+            return null;
+        }
+
+        // A qualified name is either a member type or a fully qualified name
+        JCExpression root = fieldAccess;
+        while (root instanceof JCFieldAccess selection) {
+            root = selection.getExpression();
+        }
+
+        if(root instanceof JCIdent identifier && isVariable(scope, identifier.name)) {
+            return null;
+        }
+
+        var qualifier = findType(scope, fieldAccess.getExpression());
+        if(qualifier != null) {
+            return getMemberType(qualifier, fieldAccess.name);
+        }
+
+        return elements.getTypeElement(TreeInfo.fullName(fieldAccess));
+    }
+
+    // A simple type name is looked up in the enclosing classes, then in the unit, in the single type imports, in the package and in the on demand imports
+    private ClassSymbol findType(Scope scope, Name name) {
+        if(scope.locals().contains(name)) {
+            return null;
+        }
+
+        for(var owner = scope.owner(); owner != null; owner = getOuterClass(owner)) {
+            for(var typeVariable : owner.type.getTypeArguments()) {
+                if(typeVariable.tsym.name == name) {
+                    return null;
+                }
+            }
+
+            var memberType = getMemberType(owner, name);
+            if(memberType != null) {
+                return memberType;
+            }
+        }
+
+        var unit = scope.unit();
+        var result = unit.toplevelScope.findFirst(name, symbol -> symbol instanceof ClassSymbol);
+        if(result == null) {
+            result = unit.namedImportScope.findFirst(name, symbol -> symbol instanceof ClassSymbol);
+        }
+
+        if(result == null) {
+            result = unit.packge.members().findFirst(name, symbol -> symbol instanceof ClassSymbol);
+        }
+
+        if(result == null) {
+            result = unit.starImportScope.findFirst(name, symbol -> symbol instanceof ClassSymbol);
+        }
+
+        return (ClassSymbol) result;
+    }
+
+    // Returns a member type declared or inherited by a class
+    private ClassSymbol getMemberType(ClassSymbol owner, Name name) {
+        for(var type : types.closure(owner.type)) {
+            var result = type.tsym.members().findFirst(name, symbol -> symbol instanceof ClassSymbol);
+            if(result != null) {
+                return (ClassSymbol) result;
+            }
+        }
+
+        return null;
+    }
+
+    // Returns the methods with a name that a class declares or inherits
+    private List<MethodSymbol> getMethods(Scope scope, ClassSymbol owner, Name name) {
+        return owner == null ? List.of() : Members.getMethods(types, owner, name, scope.owner());
+    }
+
+    // Constructors aren't inherited
+    private List<MethodSymbol> getConstructors(ClassSymbol owner) {
+        return owner == null ? List.of() : Members.getMethods(types, owner, names.init, owner);
+    }
+
+    private ClassSymbol getSuperclass(ClassSymbol owner) {
+        var superclass = types.supertype(owner.type);
+        return superclass != null && superclass.hasTag(TypeTag.CLASS) ? (ClassSymbol) superclass.tsym : null;
+    }
+
+    // Returns the class that declares a member class, or null for top level classes
+    private ClassSymbol getOuterClass(ClassSymbol owner) {
+        return owner.owner instanceof ClassSymbol outer ? outer : null;
+    }
+
+    // Chooses the callee of an invocation among the candidates that were found
+    // The names array contains the name of each named argument and null for each positional argument
+    // Invocations without named arguments only need to be translated if none of the candidates accepts them as they are, otherwise javac resolves them
+    // A callee is returned only if every candidate that accepts the arguments would be translated in the same way, so that choosing the one javac will choose doesn't matter
+    public Optional<MethodSymbol> select(List<MethodSymbol> candidates, Name[] arguments) {
+        var named = false;
+        for(var argument : arguments) {
+            named |= argument != null;
+        }
+
+        MethodSymbol result = null;
+        Signature resultSignature = null;
+        for(var candidate : candidates) {
+            var signature = signatures.get(candidate);
+            if(!named && signature.isComplete(arguments.length)) {
+                return Optional.empty();
+            }
+
+            if(!signature.accepts(arguments)) {
+                continue;
+            }
+
+            if(result == null) {
+                result = candidate;
+                resultSignature = signature;
+            }else if(!isEquivalent(resultSignature, signature)) {
+                return Optional.empty();
+            }
+        }
+
+        return Optional.ofNullable(result);
+    }
+
+    // Two signatures are translated in the same way if their parameters have the same names and the same default values
+    // Default values that aren't specified depend on the type of the parameter
+    private boolean isEquivalent(Signature first, Signature second) {
+        if(first.size() != second.size()) {
+            return false;
+        }
+
+        for(var index = 0; index < first.size(); index++) {
+            if(first.name(index) != second.name(index)
+                || first.isOptional(index) != second.isOptional(index)
+                || first.isVarArgs(index) != second.isVarArgs(index)
+                || first.defaultValue(index) != second.defaultValue(index)) {
+                return false;
+            }
+
+            if(first.isOptional(index) && first.defaultValue(index) == null && !isSameErasure(first.parameter(index), second.parameter(index))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isSameErasure(Symbol first, Symbol second) {
+        Type firstType = types.erasure(first.type);
+        Type secondType = types.erasure(second.type);
+        return types.isSameType(firstType, secondType);
+    }
+
+    // The unit and the class that contain an invocation, and the names declared by the member that contains it
+    // Any of these names may shadow a field, a type or a method, so they are never resolved
+    public record Scope(JCCompilationUnit unit, ClassSymbol owner, Set<Name> locals) {
+
+    }
+}
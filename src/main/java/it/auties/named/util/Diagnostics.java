@@ -1,92 +1,89 @@
 package it.auties.named.util;
 
-import com.sun.tools.javac.comp.Attr;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCNewClass;
+import com.sun.tools.javac.tree.TreeInfo;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.JCDiagnostic;
 import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Log.DeferredDiagnosticHandler;
 import com.sun.tools.javac.util.Log.DiagnosticHandler;
-import java.lang.reflect.Field;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
+import com.sun.tools.javac.util.Name;
+import it.auties.named.util.Metrics.Counter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Objects;
+import java.util.Set;
+import javax.tools.JavaFileObject;
 
 public class Diagnostics {
+    // The prefixes of the codes of the errors that a named argument can cause
+    private static final String CANT_RESOLVE = "compiler.err.cant.resolve";
+    private static final String CANT_APPLY = "compiler.err.cant.apply";
+
     private final Log javacLogger;
     private final JavaCompiler javaCompiler;
 
-    private final Field diagnosticHandlerField;
     private final DiagnosticHandler diagnosticHandler;
-
-    private final Field defferedDiagnosticHandlerField;
-    private final DiagnosticHandler deferredDiagnosticHandler;
+    private final DeferredDiagnosticHandler deferredDiagnosticHandler;
 
     private final CustomDeferredDiagnosticHandler customDeferredDiagnosticHandler;
 
-    public Diagnostics(Context context) {
-        try {
-            var attr = Attr.instance(context);
-            var javacLoggerField = attr.getClass()
-                .getDeclaredField("log");
-            Reflection.open(javacLoggerField);
-            this.javacLogger = (Log) javacLoggerField.get(attr);
-
-            this.javaCompiler = JavaCompiler.instance(context);
-
-            this.diagnosticHandlerField =  javacLogger.getClass()
-                .getDeclaredField("diagnosticHandler");
-            Reflection.open(diagnosticHandlerField);
-            this.diagnosticHandler = (DiagnosticHandler) diagnosticHandlerField.get(javacLogger);
-
-            this.defferedDiagnosticHandlerField = javaCompiler.getClass()
-                .getDeclaredField("deferredDiagnosticHandler");
-            Reflection.open(defferedDiagnosticHandlerField);
-            this.deferredDiagnosticHandler = (DiagnosticHandler) defferedDiagnosticHandlerField.get(javaCompiler);
-
-            this.customDeferredDiagnosticHandler = new CustomDeferredDiagnosticHandler();
-        }catch (ReflectiveOperationException exception){
-            throw new RuntimeException("Cannot run diagnostics", exception);
-        }
+    private final Metrics metrics;
+
+    // The trees of the unit being attributed whose errors may be caused by a named argument
+    private Candidates candidates;
+
+    public Diagnostics(Context context, Metrics metrics) {
+        this.metrics = metrics;
+        this.javacLogger = Log.instance(context);
+        this.javaCompiler = JavaCompiler.instance(context);
+        this.diagnosticHandler = (DiagnosticHandler) Handlers.DIAGNOSTIC_HANDLER.get(javacLogger);
+        this.deferredDiagnosticHandler = (DeferredDiagnosticHandler) Handlers.DEFERRED_DIAGNOSTIC_HANDLER.get(javaCompiler);
+
+        // A deferred handler installs itself when it's created: javac's handler must stay active until a unit is translated
+        this.customDeferredDiagnosticHandler = new CustomDeferredDiagnosticHandler();
+        javacLogger.popDiagnosticHandler(customDeferredDiagnosticHandler);
     }
 
-    public void useCachedHandler() {
-        try {
-            diagnosticHandlerField.set(javacLogger, customDeferredDiagnosticHandler);
-            defferedDiagnosticHandlerField.set(javaCompiler, customDeferredDiagnosticHandler);
-        } catch (IllegalAccessException exception) {
-            throw new RuntimeException("Cannot switch to cached handler", exception);
-        }
+    public void useCachedHandler(Candidates candidates) {
+        this.candidates = candidates;
+        Handlers.DIAGNOSTIC_HANDLER.set(javacLogger, customDeferredDiagnosticHandler);
+        Handlers.DEFERRED_DIAGNOSTIC_HANDLER.set(javaCompiler, customDeferredDiagnosticHandler);
     }
 
     public void useJavacHandler() {
-        try {
-            diagnosticHandlerField.set(javacLogger, diagnosticHandler);
-            defferedDiagnosticHandlerField.set(javaCompiler, deferredDiagnosticHandler);
-            customDeferredDiagnosticHandler.reportAll();
-        } catch (IllegalAccessException exception) {
-            throw new RuntimeException("Cannot switch to javac handler", exception);
-        }
+        Handlers.DIAGNOSTIC_HANDLER.set(javacLogger, diagnosticHandler);
+        Handlers.DEFERRED_DIAGNOSTIC_HANDLER.set(javaCompiler, deferredDiagnosticHandler);
+        customDeferredDiagnosticHandler.reportAll();
+        this.candidates = null;
     }
 
     public void markResolved(JCTree tree) {
-        customDeferredDiagnosticHandler.cachedErrors()
-            .stream()
-            .filter(entry -> Objects.equals(tree, entry.getDiagnosticPosition().getTree()))
-            .findFirst()
-            .ifPresent(customDeferredDiagnosticHandler::markResolved);
+        if(customDeferredDiagnosticHandler.markResolved(tree)) {
+            metrics.increment(Counter.DIAGNOSTICS_RESOLVED);
+        }
     }
 
     private class CustomDeferredDiagnosticHandler extends DeferredDiagnosticHandler {
-        private final Map<JCDiagnostic, Boolean> cachedErrors;
+        // The buffered diagnostics in the order they were reported
+        private final List<CachedDiagnostic> cachedErrors;
+
+        // The diagnostics that weren't resolved yet indexed by the tree they were reported on
+        // Trees are compared by identity, like javac does, so a lookup is constant time
+        private final Map<JCTree, ArrayDeque<CachedDiagnostic>> pendingErrors;
 
         private CustomDeferredDiagnosticHandler() {
             super(javacLogger);
-            this.cachedErrors = new HashMap<>();
+            this.cachedErrors = new ArrayList<>();
+            this.pendingErrors = new IdentityHashMap<>();
         }
 
         @Override
@@ -95,24 +92,124 @@ public class Diagnostics {
                 return;
             }
 
-            cachedErrors.put(diagnostic, true);
+            if(!isBuffered(diagnostic)) {
+                diagnosticHandler.report(diagnostic);
+                return;
+            }
+
+            var cached = new CachedDiagnostic(diagnostic);
+            cachedErrors.add(cached);
+            var tree = diagnostic.getDiagnosticPosition() == null ? null : diagnostic.getDiagnosticPosition().getTree();
+            if(tree != null) {
+                pendingErrors.computeIfAbsent(tree, ignored -> new ArrayDeque<>())
+                    .add(cached);
+            }
+
+            metrics.increment(Counter.DIAGNOSTICS_BUFFERED);
         }
 
-        private Collection<JCDiagnostic> cachedErrors() {
-            return Collections.unmodifiableCollection(cachedErrors.keySet());
+        // Only the errors that a named argument can cause are buffered, as they may be resolved once the unit is translated:
+        // a named argument that can't be resolved, as it's the name of a parameter, and a candidate invocation whose arguments don't match the parameters
+        // Every other diagnostic, like warnings, lint output and unrelated errors in the same unit, is passed to javac's handler right away
+        private boolean isBuffered(JCDiagnostic diagnostic) {
+            if(candidates == null || diagnostic.getKind() != JCDiagnostic.Kind.ERROR || diagnostic.getDiagnosticPosition() == null) {
+                return false;
+            }
+
+            var tree = diagnostic.getDiagnosticPosition().getTree();
+            var code = diagnostic.getCode();
+            if(code.startsWith(CANT_APPLY)) {
+                return candidates.isInvocation(tree);
+            }
+
+            return code.startsWith(CANT_RESOLVE)
+                && tree instanceof JCIdent
+                && candidates.isNamedArgument(tree);
         }
 
-        private void markResolved(JCDiagnostic diagnostic) {
-            cachedErrors.put(diagnostic, false);
+        // Resolves the first pending diagnostic reported on a tree
+        private boolean markResolved(JCTree tree) {
+            var pending = pendingErrors.get(tree);
+            if(pending == null){
+                return false;
+            }
+
+            var cached = pending.poll();
+            if(pending.isEmpty()){
+                pendingErrors.remove(tree);
+            }
+
+            if(cached == null){
+                return false;
+            }
+
+            cached.resolved = true;
+            return true;
         }
 
+        // Reports the diagnostics that weren't resolved in source order
+        // Diagnostics from different sources keep the order in which their sources were first reported
         private void reportAll(){
-            cachedErrors.entrySet()
-                .stream()
-                .filter(Entry::getValue)
-                .map(Entry::getKey)
+            var sources = new IdentityHashMap<JavaFileObject, Integer>();
+            cachedErrors.forEach(cached -> sources.putIfAbsent(cached.diagnostic.getSource(), sources.size()));
+            cachedErrors.stream()
+                .filter(cached -> !cached.resolved)
+                .map(cached -> cached.diagnostic)
+                .sorted(Comparator.<JCDiagnostic>comparingInt(diagnostic -> sources.get(diagnostic.getSource()))
+                    .thenComparingLong(JCDiagnostic::getPosition))
                 .forEach(diagnosticHandler::report);
             cachedErrors.clear();
+            pendingErrors.clear();
+        }
+    }
+
+    // The trees of a unit that the scanner found to be candidates, compared by identity
+    // Javac reports the errors of an invocation on its method, like m or object.m, or on the whole tree if it creates an object
+    // Invocations without named arguments are candidates if they invoke a method or constructor with @Option parameters, as they may omit them
+    public record Candidates(Set<JCTree> namedArguments, Set<JCTree> namedInvocations, Set<Name> optionalNames) {
+        // Checks if a tree is the name of a named argument
+        private boolean isNamedArgument(JCTree tree) {
+            return namedArguments.contains(tree);
+        }
+
+        // Checks if a tree is the method or the object creation of a candidate invocation
+        private boolean isInvocation(JCTree tree) {
+            if(tree == null){
+                return false;
+            }
+
+            if(namedInvocations.contains(tree)){
+                return true;
+            }
+
+            var name = tree instanceof JCNewClass newClass ? TreeInfo.name(newClass.getIdentifier()) : TreeInfo.name(tree);
+            return name != null && optionalNames.contains(name);
+        }
+    }
+
+    // A diagnostic that was buffered while a unit was attributed the first time
+    private static final class CachedDiagnostic {
+        private final JCDiagnostic diagnostic;
+        private boolean resolved;
+
+        private CachedDiagnostic(JCDiagnostic diagnostic) {
+            this.diagnostic = diagnostic;
+        }
+    }
+
+    // The handles of the fields that hold javac's diagnostic handlers
+    // They are looked up once per JVM, the first time a compilation needs them, after the plugin opened javac's packages
+    private static final class Handlers {
+        private static final VarHandle DIAGNOSTIC_HANDLER = findHandle(Log.class, "diagnosticHandler", DiagnosticHandler.class);
+        private static final VarHandle DEFERRED_DIAGNOSTIC_HANDLER = findHandle(JavaCompiler.class, "deferredDiagnosticHandler", DeferredDiagnosticHandler.class);
+
+        private static VarHandle findHandle(Class<?> owner, String name, Class<?> type) {
+            try {
+                return MethodHandles.privateLookupIn(owner, MethodHandles.lookup())
+                    .findVarHandle(owner, name, type);
+            }catch (ReflectiveOperationException exception){
+                throw new RuntimeException("Cannot run diagnostics", exception);
+            }
         }
     }
-}
\ No newline at end of file
+}
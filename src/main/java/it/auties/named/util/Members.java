@@ -0,0 +1,59 @@
+package it.auties.named.util;
+
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.util.Name;
+import java.util.ArrayList;
+import java.util.List;
+
+// Looks up the methods of a class like javac does
+// Both engines use it: the enter engine to find the callees of an invocation before attribution,
+// the attribution engine to find the overloads of an invocation that javac couldn't resolve
+public final class Members {
+    private Members() {
+
+    }
+
+    // Returns the methods with a name that a class declares or inherits, in the order of its supertypes
+    // Constructors aren't inherited, neither are the methods overridden by one that was already found,
+    // the private methods of top level classes other than the one of the caller and the static methods of interfaces
+    public static List<MethodSymbol> getMethods(Types types, ClassSymbol owner, Name name, ClassSymbol caller) {
+        var results = new ArrayList<MethodSymbol>();
+        var closure = name == name.table.names.init ? com.sun.tools.javac.util.List.<Type>of(owner.type) : types.closure(owner.type);
+        for(var type : closure) {
+            for(var symbol : type.tsym.members().getSymbolsByName(name, symbol -> symbol instanceof MethodSymbol)) {
+                var method = (MethodSymbol) symbol;
+                if(isInherited(owner, method, caller) && !isOverridden(types, results, method, owner)) {
+                    results.add(method);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    private static boolean isInherited(ClassSymbol owner, MethodSymbol method, ClassSymbol caller) {
+        if(method.owner == owner) {
+            return true;
+        }
+
+        if((method.flags() & Flags.PRIVATE) != 0) {
+            return method.outermostClass() == caller.outermostClass();
+        }
+
+        return !method.isStatic() || !method.owner.isInterface();
+    }
+
+    private static boolean isOverridden(Types types, List<MethodSymbol> methods, MethodSymbol method, ClassSymbol owner) {
+        for(var other : methods) {
+            if(other.overrides(method, owner, types, false)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,168 @@
+package it.auties.named.util;
+
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import it.auties.named.util.Metrics.Counter;
+import java.util.HashMap;
+import java.util.Map;
+
+// Caches the parameters of the methods invoked by named invocations during a compilation
+// A signature is built once per method, then every invocation only does index lookups
+public class MethodSignatures {
+    private final Annotations annotations;
+    private final Metrics metrics;
+    private final Map<MethodSymbol, Signature> signatures;
+
+    public MethodSignatures(Context context, Metrics metrics) {
+        this.annotations = Annotations.instance(context);
+        this.metrics = metrics;
+        this.signatures = new HashMap<>();
+    }
+
+    // Returns the signature of a method
+    public Signature get(MethodSymbol method) {
+        var cached = signatures.get(method);
+        if(cached != null){
+            metrics.increment(Counter.SIGNATURE_HITS);
+            return cached;
+        }
+
+        metrics.increment(Counter.SIGNATURE_MISSES);
+        var result = createSignature(method);
+        signatures.put(method, result);
+        return result;
+    }
+
+    private Signature createSignature(MethodSymbol method) {
+        var size = method.params().size();
+        var parameters = new VarSymbol[size];
+        var names = new Name[size];
+        var optional = new boolean[size];
+        var defaultValues = new JCExpression[size];
+        var index = 0;
+        for(var parameter : method.params()){
+            parameters[index] = parameter;
+            names[index] = parameter.name;
+            optional[index] = Annotations.hasOptionalModifier(parameter);
+            defaultValues[index] = optional[index] ? annotations.getDefaultValue(parameter).orElse(null) : null;
+            index++;
+        }
+
+        var varArgsIndex = (method.flags() & Flags.VARARGS) != 0 ? size - 1 : -1;
+        return new Signature(parameters, names, optional, defaultValues, varArgsIndex);
+    }
+
+    // Releases the cached signatures, the task may be kept alive after the compilation is over
+    public void clear() {
+        signatures.clear();
+    }
+
+    // The parameters of a method
+    public static final class Signature {
+        private final VarSymbol[] parameters;
+        private final Name[] names;
+        private final boolean[] optional;
+        private final JCExpression[] defaultValues;
+        private final int varArgsIndex;
+
+        // The number of parameters that can't be omitted
+        private final int required;
+
+        private Signature(VarSymbol[] parameters, Name[] names, boolean[] optional, JCExpression[] defaultValues, int varArgsIndex) {
+            this.parameters = parameters;
+            this.names = names;
+            this.optional = optional;
+            this.defaultValues = defaultValues;
+            this.varArgsIndex = varArgsIndex;
+            this.required = countRequired(optional, varArgsIndex);
+        }
+
+        private static int countRequired(boolean[] optional, int varArgsIndex) {
+            var results = 0;
+            for(var index = 0; index < optional.length; index++){
+                if(!optional[index] && index != varArgsIndex){
+                    results++;
+                }
+            }
+
+            return results;
+        }
+
+        // Returns the number of parameters
+        public int size() {
+            return parameters.length;
+        }
+
+        // Returns the parameter at an index
+        public VarSymbol parameter(int index) {
+            return parameters[index];
+        }
+
+        // Returns the name of the parameter at an index
+        public Name name(int index) {
+            return names[index];
+        }
+
+        // Returns the index of the parameter with a name, or -1 if none matches
+        // Names are interned by javac, so they are compared by identity
+        public int indexOf(Name name) {
+            for(var index = 0; index < names.length; index++){
+                if(names[index] == name){
+                    return index;
+                }
+            }
+
+            return -1;
+        }
+
+        // Checks if the parameter at an index is annotated with @Option
+        public boolean isOptional(int index) {
+            return optional[index];
+        }
+
+        // Returns the template of the default value of the parameter at an index, or null if none was specified
+        public JCExpression defaultValue(int index) {
+            return defaultValues[index];
+        }
+
+        // Checks if the parameter at an index is varargs
+        public boolean isVarArgs(int index) {
+            return index == varArgsIndex;
+        }
+
+        // Checks if positional arguments already provide a value for every parameter that would get a default value
+        public boolean isComplete(int arguments) {
+            if(arguments == parameters.length){
+                return true;
+            }
+
+            if(varArgsIndex == -1){
+                return false;
+            }
+
+            return arguments > parameters.length
+                || (arguments == parameters.length - 1 && defaultValues[varArgsIndex] == null);
+        }
+
+        // Checks if an invocation can match these parameters
+        // The names array contains the name of each named argument and null for each positional argument
+        // Optional and varargs parameters can be omitted, varargs parameters accept any number of arguments
+        public boolean accepts(Name[] arguments) {
+            if(arguments.length < required || (varArgsIndex == -1 && arguments.length > parameters.length)){
+                return false;
+            }
+
+            for(var argument : arguments){
+                if(argument != null && indexOf(argument) == -1){
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
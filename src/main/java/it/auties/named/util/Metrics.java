@@ -0,0 +1,261 @@
+package it.auties.named.util;
+
+import com.sun.source.tree.CompilationUnitTree;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Measures the time, the allocations and the work done by each stage of the plugin
+// Every stage is emitted as a JFR event and can be summarized in a JSON report at the end of the compilation
+public class Metrics {
+    private final boolean reportEnabled;
+    private final long[] counters;
+    private final long[] stageCounts;
+    private final long[] stageNanos;
+    private final long[] stageBytes;
+
+    public Metrics(boolean reportEnabled) {
+        this.reportEnabled = reportEnabled;
+        this.counters = new long[Counter.values().length];
+        this.stageCounts = new long[Stage.values().length];
+        this.stageNanos = new long[Stage.values().length];
+        this.stageBytes = new long[Stage.values().length];
+    }
+
+    // Increments a counter by one
+    public void increment(Counter counter) {
+        counters[counter.ordinal()]++;
+    }
+
+    // Starts measuring a stage
+    // Creating the first event registers it with JFR, which is slow, so events are only created if a recording may be running
+    public Sample start(Stage stage) {
+        var event = FlightRecorder.isInitialized() ? new StageEvent() : null;
+        var recorded = event != null && event.isEnabled();
+        if(!reportEnabled && !recorded){
+            return new Sample(stage, null, 0, 0, null);
+        }
+
+        if(recorded) {
+            event.begin();
+        }
+
+        return new Sample(stage, recorded ? event : null, System.nanoTime(), getAllocatedBytes(), counters.clone());
+    }
+
+    // Stops measuring a stage
+    public void stop(Sample sample, CompilationUnitTree compilationUnit) {
+        if(sample.counters == null){
+            return;
+        }
+
+        var elapsed = System.nanoTime() - sample.startNanos;
+        var allocated = getAllocatedBytes() - sample.startBytes;
+        var index = sample.stage.ordinal();
+        stageCounts[index]++;
+        stageNanos[index] += elapsed;
+        stageBytes[index] += allocated;
+
+        var event = sample.event;
+        if(event == null){
+            return;
+        }
+
+        event.end();
+        if(!event.shouldCommit()){
+            return;
+        }
+
+        event.stage = sample.stage.key();
+        event.compilationUnit = compilationUnit == null ? null : compilationUnit.getSourceFile().getName();
+        event.allocatedBytes = allocated;
+        event.invocationsVisited = delta(sample, Counter.INVOCATIONS_VISITED);
+        event.invocationsRewritten = delta(sample, Counter.INVOCATIONS_REWRITTEN);
+        event.invocationsDeattributed = delta(sample, Counter.INVOCATIONS_DEATTRIBUTED);
+        event.diagnosticsBuffered = delta(sample, Counter.DIAGNOSTICS_BUFFERED);
+        event.diagnosticsResolved = delta(sample, Counter.DIAGNOSTICS_RESOLVED);
+        event.signatureHits = delta(sample, Counter.SIGNATURE_HITS);
+        event.signatureMisses = delta(sample, Counter.SIGNATURE_MISSES);
+        event.overloadHits = delta(sample, Counter.OVERLOAD_HITS);
+        event.overloadMisses = delta(sample, Counter.OVERLOAD_MISSES);
+        event.membersAttributed = delta(sample, Counter.MEMBERS_ATTRIBUTED);
+        event.commit();
+    }
+
+    private long delta(Sample sample, Counter counter) {
+        return counters[counter.ordinal()] - sample.counters[counter.ordinal()];
+    }
+
+    // Writes a JSON summary of the compilation
+    public void writeReport(Path path, int analyzedUnits, int skippedUnits) {
+        var builder = new StringBuilder();
+        builder.append("{\n");
+        builder.append("  \"units\": {\"analyzed\": %s, \"skipped\": %s},\n".formatted(analyzedUnits, skippedUnits));
+        builder.append("  \"stages\": {\n");
+        for(var stage : Stage.values()){
+            var index = stage.ordinal();
+            builder.append("    \"%s\": {\"count\": %s, \"wallNanos\": %s, \"allocatedBytes\": %s}".formatted(stage.key(), stageCounts[index], stageNanos[index], stageBytes[index]));
+            builder.append(index == Stage.values().length - 1 ? "\n" : ",\n");
+        }
+
+        builder.append("  },\n");
+        builder.append("  \"counters\": {\n");
+        for(var counter : Counter.values()){
+            var index = counter.ordinal();
+            builder.append("    \"%s\": %s".formatted(counter.key(), counters[index]));
+            builder.append(index == Counter.values().length - 1 ? "\n" : ",\n");
+        }
+
+        builder.append("  }\n");
+        builder.append("}\n");
+        try {
+            var parent = path.toAbsolutePath().getParent();
+            if(parent != null){
+                Files.createDirectories(parent);
+            }
+
+            Files.writeString(path, builder, StandardCharsets.UTF_8);
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot write metrics to %s".formatted(path), exception);
+        }
+    }
+
+    // Returns the bytes allocated by the current thread, or zero if the JVM can't measure them
+    private static long getAllocatedBytes() {
+        var threadBean = ThreadBean.INSTANCE;
+        return threadBean == null ? 0 : threadBean.getCurrentThreadAllocatedBytes();
+    }
+
+    // Loading the management classes is slow, so the bean is only looked up when a stage is measured for the first time
+    private static final class ThreadBean {
+        private static final com.sun.management.ThreadMXBean INSTANCE = findThreadBean();
+
+        private static com.sun.management.ThreadMXBean findThreadBean() {
+            try {
+                return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()
+                    && bean.isThreadAllocatedMemoryEnabled() ? bean : null;
+            }catch (Throwable throwable){
+                return null;
+            }
+        }
+    }
+
+    // The stages of the plugin
+    public enum Stage {
+        PREPARE("prepare"),
+        CACHED_ATTRIBUTION("cachedAttribution"),
+        REWRITE("rewrite"),
+        TRANSLATE("translate"),
+        ATTRIBUTE("attribute");
+
+        private final String key;
+        Stage(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    // The work done by the plugin
+    public enum Counter {
+        INVOCATIONS_VISITED("invocationsVisited"),
+        INVOCATIONS_REWRITTEN("invocationsRewritten"),
+        INVOCATIONS_DEATTRIBUTED("invocationsDeattributed"),
+        DIAGNOSTICS_BUFFERED("diagnosticsBuffered"),
+        DIAGNOSTICS_RESOLVED("diagnosticsResolved"),
+        SIGNATURE_HITS("signatureHits"),
+        SIGNATURE_MISSES("signatureMisses"),
+        OVERLOAD_HITS("overloadHits"),
+        OVERLOAD_MISSES("overloadMisses"),
+        INDEX_HITS("indexHits"),
+        INDEX_MISSES("indexMisses"),
+        MEMBERS_ATTRIBUTED("membersAttributed");
+
+        private final String key;
+        Counter(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    // A stage that is being measured
+    public static final class Sample {
+        private final Stage stage;
+        private final StageEvent event;
+        private final long startNanos;
+        private final long startBytes;
+        private final long[] counters;
+
+        private Sample(Stage stage, StageEvent event, long startNanos, long startBytes, long[] counters) {
+            this.stage = stage;
+            this.event = event;
+            this.startNanos = startNanos;
+            this.startBytes = startBytes;
+            this.counters = counters;
+        }
+    }
+
+    @Name("it.auties.named.Stage")
+    @Label("Named Parameters Stage")
+    @Description("A stage of the named parameters plugin for a compilation unit")
+    @Category({"Java Compiler", "Named Parameters"})
+    @StackTrace(false)
+    static class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Compilation Unit")
+        String compilationUnit;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+
+        @Label("Invocations Visited")
+        long invocationsVisited;
+
+        @Label("Invocations Rewritten")
+        long invocationsRewritten;
+
+        @Label("Invocations De-attributed")
+        long invocationsDeattributed;
+
+        @Label("Diagnostics Buffered")
+        long diagnosticsBuffered;
+
+        @Label("Diagnostics Resolved")
+        long diagnosticsResolved;
+
+        @Label("Signature Cache Hits")
+        long signatureHits;
+
+        @Label("Signature Cache Misses")
+        long signatureMisses;
+
+        @Label("Overload Cache Hits")
+        long overloadHits;
+
+        @Label("Overload Cache Misses")
+        long overloadMisses;
+
+        @Label("Members Attributed Again")
+        long membersAttributed;
+    }
+}
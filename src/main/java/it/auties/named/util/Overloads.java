@@ -0,0 +1,213 @@
+package it.auties.named.util;
+
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symbol.TypeSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Type.ArrayType;
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.Name;
+import it.auties.named.util.MethodSignatures.Signature;
+import it.auties.named.util.Metrics.Counter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Finds the most probable method invoked by a named invocation that javac couldn't resolve or resolved to an overload without its named arguments
+// The overloads of a class are indexed by name the first time they are needed:
+// an invocation only checks the types of the overloads that accept its number of arguments and the names of its named arguments
+// The result is cached by the shape of the invocation, that is its target, the names of its arguments and their erased types
+public class Overloads {
+    private final Types types;
+    private final MethodSignatures signatures;
+    private final Metrics metrics;
+    private final Map<ClassSymbol, Map<Name, Overload[]>> overloads;
+    private final Map<Shape, Optional<MethodSymbol>> results;
+
+    public Overloads(Context context, MethodSignatures signatures, Metrics metrics) {
+        this.types = Types.instance(context);
+        this.signatures = signatures;
+        this.metrics = metrics;
+        this.overloads = new HashMap<>();
+        this.results = new HashMap<>();
+    }
+
+    // Returns the overload of a method that best matches the provided arguments
+    // The names array contains the name of each named argument and null for each positional argument
+    // Overloads are visited in the order javac declares them and the first one with the best score wins, so the result is deterministic
+    public Optional<MethodSymbol> resolve(ClassSymbol owner, Name name, List<JCExpression> arguments, Name[] names) {
+        return resolve(owner, name, arguments, names, false);
+    }
+
+    // Returns the overload that should be invoked instead of the one chosen by javac, if any
+    // Named arguments are attributed as erroneous expressions, so javac picks the first overload that accepts their number:
+    // if that overload doesn't declare the names of the named arguments, one that does is chosen instead
+    public Optional<MethodSymbol> refine(MethodSymbol method, List<JCExpression> arguments, Name[] names) {
+        var owner = method.enclClass();
+        if(owner == null){
+            return Optional.empty();
+        }
+
+        var candidates = getOverloads(owner, method.name);
+        for(var candidate : candidates){
+            if(candidate.method() == method && candidate.accepts(names)){
+                return Optional.empty();
+            }
+        }
+
+        return resolve(owner, method.name, arguments, names, true)
+            .filter(result -> result != method);
+    }
+
+    private Optional<MethodSymbol> resolve(ClassSymbol owner, Name name, List<JCExpression> arguments, Name[] names, boolean strict) {
+        var shape = new Shape(owner, name, Arrays.asList(names), getTypeKeys(arguments), strict);
+        var cached = results.get(shape);
+        if(cached != null){
+            metrics.increment(Counter.OVERLOAD_HITS);
+            return cached;
+        }
+
+        metrics.increment(Counter.OVERLOAD_MISSES);
+        var candidates = getOverloads(owner, name);
+        var result = findBestMatch(candidates, arguments, names, true);
+        if(result.isEmpty() && !strict){
+            result = findBestMatch(candidates, arguments, names, false);
+        }
+
+        results.put(shape, result);
+        return result;
+    }
+
+    private java.util.List<Object> getTypeKeys(List<JCExpression> arguments) {
+        var results = new ArrayList<>(arguments.size());
+        for(var argument : arguments){
+            results.add(getTypeKey(argument.type));
+        }
+
+        return results;
+    }
+
+    // Returns the part of the type of an argument that decides which parameters it's assignable to
+    // Types are compared by identity and most expressions have their own instance, so they would almost never hit the cache: the erased class is used instead
+    // Types with type arguments and type variables are kept, as their type arguments or bounds decide if they are assignable
+    // Constant ints are also assignable to the narrower primitive types that can represent them, so those are part of their key
+    // Erroneous types, like the ones of named arguments, are assignable to any parameter, so they share the key of the arguments without a type
+    private Object getTypeKey(Type type) {
+        if(type == null || type.hasTag(TypeTag.ERROR)){
+            return null;
+        }
+
+        if(type.constValue() instanceof Integer constant){
+            int value = constant;
+            return new ConstantKey(type.tsym, value == (byte) value, value == (short) value, value == (char) value);
+        }
+
+        if(type instanceof ArrayType arrayType){
+            return new ArrayKey(getTypeKey(arrayType.elemtype));
+        }
+
+        if(type.isParameterized() || type.hasTag(TypeTag.TYPEVAR)){
+            return type;
+        }
+
+        return types.erasure(type).tsym;
+    }
+
+    // Scores the candidates that accept the invocation, or all of them if none does so that javac can still report a meaningful error
+    private Optional<MethodSymbol> findBestMatch(Overload[] candidates, List<JCExpression> arguments, Name[] names, boolean narrow) {
+        Overload bestMatch = null;
+        var bestScore = -1;
+        for(var candidate : candidates){
+            if(narrow && !candidate.accepts(names)){
+                continue;
+            }
+
+            var score = score(candidate.signature(), arguments);
+            if(score > bestScore){
+                bestMatch = candidate;
+                bestScore = score;
+            }
+
+            if(bestScore == arguments.size()){
+                break;
+            }
+        }
+
+        return Optional.ofNullable(bestMatch)
+            .map(Overload::method);
+    }
+
+    // Counts the arguments that are assignable to the parameter in the same position
+    private int score(Signature signature, List<JCExpression> arguments) {
+        if(signature.size() == 0){
+            return 0;
+        }
+
+        var score = 0;
+        var index = 0;
+        for(var argument : arguments){
+            var parameterIndex = Math.min(index++, signature.size() - 1);
+            if(signature.isOptional(parameterIndex)
+                || argument.type == null
+                || types.isAssignable(argument.type, signature.parameter(parameterIndex).type)){
+                score++;
+            }
+        }
+
+        return score;
+    }
+
+    // Returns the indexed overloads of a method
+    private Overload[] getOverloads(ClassSymbol owner, Name name) {
+        return overloads.computeIfAbsent(owner, ignored -> new HashMap<>())
+            .computeIfAbsent(name, ignored -> createOverloads(owner, name));
+    }
+
+    // Checks if a class declares or inherits a method with a name
+    public boolean declares(ClassSymbol owner, Name name) {
+        return getOverloads(owner, name).length != 0;
+    }
+
+    // Indexes the methods with a name that a class declares or inherits, like javac looks them up
+    private Overload[] createOverloads(ClassSymbol owner, Name name) {
+        var methods = Members.getMethods(types, owner, name, owner);
+        var results = new Overload[methods.size()];
+        for(var index = 0; index < results.length; index++){
+            var method = methods.get(index);
+            results[index] = new Overload(method, signatures.get(method));
+        }
+
+        return results;
+    }
+
+    // Releases the indexed overloads, the task may be kept alive after the compilation is over
+    public void clear() {
+        overloads.clear();
+        results.clear();
+    }
+
+    private record Overload(MethodSymbol method, Signature signature) {
+        // Checks if the number of arguments and the names of the named arguments can match this overload
+        private boolean accepts(Name[] arguments) {
+            return signature.accepts(arguments);
+        }
+    }
+
+    private record Shape(ClassSymbol owner, Name name, java.util.List<Name> names, java.util.List<Object> types, boolean strict) {
+
+    }
+
+    private record ConstantKey(TypeSymbol type, boolean fitsByte, boolean fitsShort, boolean fitsChar) {
+
+    }
+
+    private record ArrayKey(Object component) {
+
+    }
+}
@@ -5,12 +5,26 @@ import sun.misc.Unsafe;
 import java.io.OutputStream;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.NoSuchElementException;
 
 public class Reflection {
     private static final Unsafe unsafe = openUnsafe();
     private static final long offset = findOffset();
+    private static volatile boolean javacOpened;
+
+    // The javac packages used by the plugin
+    private static final String[] JAVAC_PACKAGES = {
+            "com.sun.tools.javac.api",
+            "com.sun.tools.javac.code",
+            "com.sun.tools.javac.comp",
+            "com.sun.tools.javac.jvm",
+            "com.sun.tools.javac.main",
+            "com.sun.tools.javac.model",
+            "com.sun.tools.javac.parser",
+            "com.sun.tools.javac.resources",
+            "com.sun.tools.javac.tree",
+            "com.sun.tools.javac.util"
+    };
 
     public static <T extends AccessibleObject> void open(T object){
         if(offset != -1){
@@ -21,18 +35,41 @@ public class Reflection {
         object.setAccessible(true);
     }
 
+    // Opens the javac packages used by the plugin to this module
+    // Concurrent compilations in the same JVM can all call this method: only the first call opens the packages, the others return immediately
+    // Packages that are already open, for example through --add-opens, are skipped
     public static void openJavac(){
-        try {
-            var jdkCompilerModule = findCompilerModule();
-            var addOpensMethod = Module.class.getDeclaredMethod("implAddOpens", String.class, Module.class);
-            var addOpensMethodOffset = unsafe.objectFieldOffset(ModulePlaceholder.class.getDeclaredField("first"));
-            unsafe.putBooleanVolatile(addOpensMethod, addOpensMethodOffset, true);
-            Arrays.stream(Package.getPackages())
-                    .map(Package::getName)
-                    .filter(pack -> pack.startsWith("com.sun.tools.javac"))
-                    .forEach(pack -> invokeAccessibleMethod(addOpensMethod, jdkCompilerModule, pack, Reflection.class.getModule()));
-        }catch (Throwable throwable){
-            throw new UnsupportedOperationException("Cannot open Javac Modules", throwable);
+        if(javacOpened){
+            return;
+        }
+
+        synchronized (Reflection.class) {
+            if(javacOpened){
+                return;
+            }
+
+            try {
+                var jdkCompilerModule = findCompilerModule();
+                var module = Reflection.class.getModule();
+                Method addOpensMethod = null;
+                for(var pack : JAVAC_PACKAGES){
+                    if(jdkCompilerModule.isOpen(pack, module)){
+                        continue;
+                    }
+
+                    if(addOpensMethod == null){
+                        addOpensMethod = Module.class.getDeclaredMethod("implAddOpens", String.class, Module.class);
+                        var addOpensMethodOffset = unsafe.objectFieldOffset(ModulePlaceholder.class.getDeclaredField("first"));
+                        unsafe.putBooleanVolatile(addOpensMethod, addOpensMethodOffset, true);
+                    }
+
+                    invokeAccessibleMethod(addOpensMethod, jdkCompilerModule, pack, module);
+                }
+
+                javacOpened = true;
+            }catch (Throwable throwable){
+                throw new UnsupportedOperationException("Cannot open Javac Modules", throwable);
+            }
         }
     }
 
@@ -0,0 +1,230 @@
+package it.auties.named.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Remembers across compilations which source files contain named arguments or @Option parameters and which names they invoke
+// The index is kept in a file, usually in the build directory, that is read into the heap when the compilation starts:
+// a source file whose content didn't change since it was indexed doesn't need to be scanned again
+// The file isn't memory mapped, as a mapping keeps it open until the buffer is collected and Windows doesn't allow replacing a mapped file
+// Entries are sorted by the hash of their path, so a lookup is a binary search that only decodes the entry it finds
+// The file is a cache: if it's missing or corrupted, every source file is scanned like the index didn't exist
+public class SourceIndex {
+    // The header contains the magic number, the version of the format and the number of entries
+    private static final int MAGIC = 0x4E414D44;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    // Every slot contains the hash of the path of an entry and the offset of the entry
+    private static final int SLOT_SIZE = 12;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int size;
+    private final Map<String, Entry> updates;
+
+    public SourceIndex(Path path) {
+        this.path = path;
+        this.buffer = read(path);
+        this.size = buffer == null ? 0 : buffer.getInt(8);
+        this.updates = new HashMap<>();
+    }
+
+    // Reads the index file, or returns null if it can't be read or wasn't written by this version of the plugin
+    private static ByteBuffer read(Path path) {
+        try {
+            var buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            if(buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION){
+                return null;
+            }
+
+            var size = buffer.getInt(8);
+            if(size < 0 || HEADER_SIZE + (long) size * SLOT_SIZE > buffer.limit()){
+                return null;
+            }
+
+            return buffer;
+        }catch (IOException exception){
+            return null;
+        }
+    }
+
+    // Hashes the content of a source file
+    public static long hash(CharSequence content) {
+        var hash = 0xcbf29ce484222325L;
+        for(var index = 0; index < content.length(); index++){
+            hash ^= content.charAt(index);
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    // Returns the entry of a source file if it was indexed with the same content
+    public Optional<Entry> find(String file, long contentHash) {
+        if(buffer == null){
+            return Optional.empty();
+        }
+
+        try {
+            var pathHash = hash(file);
+            for(var slot = findFirstSlot(pathHash); slot < size && buffer.getLong(HEADER_SIZE + slot * SLOT_SIZE) == pathHash; slot++){
+                var entry = readEntry(buffer.getInt(HEADER_SIZE + slot * SLOT_SIZE + 8));
+                if(entry.file().equals(file)){
+                    return entry.contentHash() == contentHash ? Optional.of(entry) : Optional.empty();
+                }
+            }
+
+            return Optional.empty();
+        }catch (IndexOutOfBoundsException exception){
+            return Optional.empty();
+        }
+    }
+
+    // Returns the first slot whose path hash isn't smaller than the provided one
+    private int findFirstSlot(long pathHash) {
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if(buffer.getLong(HEADER_SIZE + middle * SLOT_SIZE) < pathHash){
+                low = middle + 1;
+            }else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private Entry readEntry(int offset) {
+        var entryBuffer = buffer.duplicate()
+            .position(offset);
+        var contentHash = entryBuffer.getLong();
+        var named = entryBuffer.get() != 0;
+        var file = readString(entryBuffer);
+        var count = entryBuffer.getInt();
+        var invokedNames = new ArrayList<String>(count);
+        for(var index = 0; index < count; index++){
+            invokedNames.add(readString(entryBuffer));
+        }
+
+        return new Entry(file, contentHash, named, invokedNames);
+    }
+
+    private String readString(ByteBuffer buffer) {
+        var bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Indexes a source file that was scanned by this compilation
+    public void put(String file, long contentHash, boolean named, Collection<String> invokedNames) {
+        updates.put(file, new Entry(file, contentHash, named, List.copyOf(invokedNames)));
+    }
+
+    // Writes the index if any source file was scanned, keeping the entries of the files that weren't part of this compilation
+    // The file is replaced atomically when possible, so that a concurrent compilation never reads a partial index
+    public void write() {
+        if(updates.isEmpty()){
+            return;
+        }
+
+        var entries = new HashMap<String, Entry>();
+        for(var slot = 0; slot < size; slot++){
+            try {
+                var entry = readEntry(buffer.getInt(HEADER_SIZE + slot * SLOT_SIZE + 8));
+                entries.put(entry.file(), entry);
+            }catch (IndexOutOfBoundsException exception){
+                entries.clear();
+                break;
+            }
+        }
+
+        entries.putAll(updates);
+        var sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong((Entry entry) -> hash(entry.file())).thenComparing(Entry::file));
+        try {
+            var data = new ByteArrayOutputStream();
+            var dataStream = new DataOutputStream(data);
+            var offsets = new int[sorted.size()];
+            var dataOffset = HEADER_SIZE + sorted.size() * SLOT_SIZE;
+            for(var index = 0; index < sorted.size(); index++){
+                offsets[index] = dataOffset + dataStream.size();
+                writeEntry(dataStream, sorted.get(index));
+            }
+
+            var output = new ByteArrayOutputStream(dataOffset + data.size());
+            var outputStream = new DataOutputStream(output);
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeInt(sorted.size());
+            for(var index = 0; index < sorted.size(); index++){
+                outputStream.writeLong(hash(sorted.get(index).file()));
+                outputStream.writeInt(offsets[index]);
+            }
+
+            data.writeTo(outputStream);
+            replace(output.toByteArray());
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot write the source index at %s".formatted(path), exception);
+        }
+    }
+
+    private void writeEntry(DataOutputStream stream, Entry entry) throws IOException {
+        stream.writeLong(entry.contentHash());
+        stream.writeBoolean(entry.named());
+        writeString(stream, entry.file());
+        stream.writeInt(entry.invokedNames().size());
+        for(var name : entry.invokedNames()){
+            writeString(stream, name);
+        }
+    }
+
+    private void writeString(DataOutputStream stream, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > 0xFFFF){
+            throw new IOException("Value is too long: %s".formatted(value));
+        }
+
+        stream.writeShort(bytes.length);
+        stream.write(bytes);
+    }
+
+    private void replace(byte[] content) throws IOException {
+        var parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        var temporary = parent.resolve("%s.%s.%s.tmp".formatted(path.getFileName(), Thread.currentThread().getId(), Long.toHexString(System.nanoTime())));
+        try {
+            Files.write(temporary, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }catch (AtomicMoveNotSupportedException exception){
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // A source file, the hash of its content, whether it contains named arguments or @Option parameters and the names it invokes
+    public record Entry(String file, long contentHash, boolean named, List<String> invokedNames) {
+
+    }
+}
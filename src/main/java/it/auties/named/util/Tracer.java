@@ -0,0 +1,137 @@
+package it.auties.named.util;
+
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import com.sun.tools.javac.tree.JCTree.JCNewClass;
+import com.sun.tools.javac.tree.JCTree.JCPolyExpression;
+import com.sun.tools.javac.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Streams the call sites rewritten by the plugin to a file
+// Only the invocations are printed, never the whole compilation unit
+// A file that can't be written stops the trace instead of the compilation, the failure is thrown when the tracer is closed
+public class Tracer implements AutoCloseable {
+    private final Path path;
+    private Writer writer;
+    private IOException failure;
+
+    // Creates a tracer that writes to the provided file, or a disabled one if the path is null
+    public Tracer(Path path) {
+        this.path = path;
+    }
+
+    // Checks if the call sites should be traced
+    public boolean isEnabled() {
+        return path != null && failure == null;
+    }
+
+    // Writes a call site before and after its arguments were rewritten
+    public void trace(JCCompilationUnit compilationUnit, JCPolyExpression expression, List<JCExpression> originalArguments) {
+        if(!isEnabled()){
+            return;
+        }
+
+        try {
+            var writer = openWriter();
+            writer.append(compilationUnit.getSourceFile().getName())
+                .append(':')
+                .append(String.valueOf(compilationUnit.getLineMap().getLineNumber(expression.getStartPosition())))
+                .append(System.lineSeparator());
+            writeInvocation(writer, "- ", expression, originalArguments);
+            writeInvocation(writer, "+ ", expression, getArguments(expression));
+        }catch (IOException exception){
+            stop(exception);
+        }
+    }
+
+    // Stops tracing after a write failed, the trace written so far is kept
+    private void stop(IOException exception) {
+        this.failure = exception;
+        if(writer == null){
+            return;
+        }
+
+        try {
+            writer.close();
+        }catch (IOException closeException){
+            exception.addSuppressed(closeException);
+        }finally {
+            this.writer = null;
+        }
+    }
+
+    // Writes the invoked expression followed by the provided arguments
+    private void writeInvocation(Writer writer, String prefix, JCPolyExpression expression, List<JCExpression> arguments) throws IOException {
+        writer.append(prefix);
+        if(expression instanceof JCMethodInvocation invocation){
+            writer.append(invocation.getMethodSelect().toString());
+        }else if(expression instanceof JCNewClass initialization){
+            writer.append("new ").append(initialization.getIdentifier().toString());
+        }
+
+        writer.append('(');
+        for(var remaining = arguments; remaining.nonEmpty(); remaining = remaining.tail){
+            writer.append(remaining.head.toString());
+            if(remaining.tail.nonEmpty()){
+                writer.append(", ");
+            }
+        }
+
+        writer.append(')').append(System.lineSeparator());
+    }
+
+    // Returns the current arguments of an invocation
+    private List<JCExpression> getArguments(JCPolyExpression expression) {
+        if(expression instanceof JCMethodInvocation invocation){
+            return invocation.getArguments();
+        }
+
+        if(expression instanceof JCNewClass initialization){
+            return initialization.getArguments();
+        }
+
+        throw new IllegalStateException("Unsupported type: " + expression.getClass().getName());
+    }
+
+    // Opens the trace file the first time something is written to it
+    private Writer openWriter() throws IOException {
+        if(writer != null){
+            return writer;
+        }
+
+        var parent = path.toAbsolutePath().getParent();
+        if(parent != null){
+            Files.createDirectories(parent);
+        }
+
+        return this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+    }
+
+    // Closes the trace file, throwing the failure that stopped the trace if any
+    @Override
+    public void close() {
+        if(failure != null){
+            var exception = failure;
+            this.failure = null;
+            throw new UncheckedIOException("Cannot write trace to %s".formatted(path), exception);
+        }
+
+        if(writer == null){
+            return;
+        }
+
+        try {
+            writer.close();
+        }catch (IOException exception){
+            throw new UncheckedIOException("Cannot close trace file %s".formatted(path), exception);
+        }finally {
+            this.writer = null;
+        }
+    }
+}
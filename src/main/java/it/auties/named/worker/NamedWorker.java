@@ -0,0 +1,143 @@
+package it.auties.named.worker;
+
+import com.sun.source.util.JavacTask;
+import com.sun.tools.javac.main.CommandLine;
+import it.auties.named.plugin.NamedParameterPlugin;
+import it.auties.named.util.Reflection;
+import it.auties.named.worker.WorkProtocol.Request;
+import it.auties.named.worker.WorkProtocol.Response;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+// A long-running compiler that speaks Bazel's persistent worker protocol over stdin and stdout, in its JSON form
+// Every build run in a fresh javac process pays again for starting the JVM, opening javac's packages, looking up the fields used by the plugin and a cold JIT:
+// the worker pays these costs once, and every later request compiles with warm classes
+// Every request runs in its own javac task with its own file manager and its own plugin, so no state of a compilation is visible to the next one
+// Started without --persistent_worker, the arguments are compiled once, like javac does
+public final class NamedWorker {
+    private static final String PERSISTENT_WORKER = "--persistent_worker";
+    private static final String PLUGIN_OPTION = "-Xplugin:";
+    private static final String PLUGIN_NAME = "named";
+
+    // The exit codes of javac
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_COMMAND_LINE = 2;
+    private static final int EXIT_ABNORMAL = 4;
+
+    private final JavaCompiler compiler;
+    private final PrintStream log;
+    private int requests;
+
+    private NamedWorker(PrintStream log) {
+        // Opens Javac's packages once, for all the requests
+        Reflection.openJavac();
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        this.log = log;
+    }
+
+    public static void main(String... args) throws IOException {
+        // The protocol owns stdout: anything printed by javac, by annotation processors or by the plugin goes to stderr instead
+        var stdout = System.out;
+        System.setOut(System.err);
+        var worker = new NamedWorker(System.err);
+        if(!Arrays.asList(args).contains(PERSISTENT_WORKER)){
+            var result = worker.compile(new Request(List.of(args), 0, 0, false));
+            System.err.print(result.output());
+            System.exit(result.exitCode());
+            return;
+        }
+
+        worker.serve(new WorkProtocol(System.in, stdout));
+    }
+
+    // Answers requests until the client closes the input
+    // Requests are compiled one at a time: a multiplexing client receives the responses in the order of its requests
+    private void serve(WorkProtocol protocol) throws IOException {
+        var request = protocol.read();
+        while (request.isPresent()) {
+            // Cancellation is only sent to workers that declare support for it, but a stray one must not be compiled
+            if(!request.get().cancel()){
+                protocol.write(compile(request.get()));
+            }
+
+            request = protocol.read();
+        }
+    }
+
+    // Compiles a request and reports its latency
+    // The first request of a worker is cold, so the number of requests served so far is reported too
+    private Response compile(Request request) {
+        var start = System.nanoTime();
+        var output = new StringWriter();
+        int exitCode;
+        try(var writer = new PrintWriter(output)) {
+            exitCode = compile(request.arguments(), writer);
+        }
+
+        var elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        var latency = "Named worker: request %s compiled in %s ms with exit code %s, %s requests served".formatted(request.requestId(), elapsedMillis, exitCode, ++requests);
+        log.println(latency);
+        var result = output.toString();
+        if(request.verbosity() > 0){
+            result += latency + System.lineSeparator();
+        }
+
+        return new Response(exitCode, result, request.requestId());
+    }
+
+    private int compile(List<String> arguments, PrintWriter output) {
+        try(var fileManager = compiler.getStandardFileManager(null, null, null)) {
+            var options = new ArrayList<String>();
+            var sources = new ArrayList<String>();
+            var pluginArguments = new String[0];
+            var expanded = CommandLine.parse(arguments);
+            for(var index = 0; index < expanded.size(); index++){
+                var argument = expanded.get(index);
+                // The plugin is initialized directly on the task, so -Xplugin:named is removed from the options as javac can't find it on the processor path
+                if(argument.startsWith(PLUGIN_OPTION)){
+                    var plugin = argument.substring(PLUGIN_OPTION.length()).strip().split("\\s+");
+                    if(plugin[0].equals(PLUGIN_NAME)){
+                        pluginArguments = Arrays.copyOfRange(plugin, 1, plugin.length);
+                        continue;
+                    }
+                }
+
+                // Options like -d and -classpath are handled by the file manager instead of the compiler
+                // Unknown options are passed to the task, which rejects them like javac does
+                var values = Math.max(compiler.isSupportedOption(argument), fileManager.isSupportedOption(argument));
+                if(values == -1 && !argument.startsWith("-")){
+                    sources.add(argument);
+                    continue;
+                }
+
+                options.add(argument);
+                for(var value = 0; value < values && index + 1 < expanded.size(); value++){
+                    options.add(expanded.get(++index));
+                }
+            }
+
+            var units = fileManager.getJavaFileObjectsFromStrings(sources);
+            var task = (JavacTask) compiler.getTask(output, fileManager, null, options, null, units);
+            new NamedParameterPlugin().init(task, pluginArguments);
+            return task.call() ? EXIT_OK : EXIT_ERROR;
+        }catch (IllegalArgumentException exception){
+            // Javac's messages for invalid options are already formatted as errors
+            output.println(exception.getMessage());
+            return EXIT_COMMAND_LINE;
+        }catch (IOException exception){
+            output.println("error: %s".formatted(exception.getMessage()));
+            return EXIT_COMMAND_LINE;
+        }catch (RuntimeException | Error throwable){
+            throwable.printStackTrace(output);
+            return EXIT_ABNORMAL;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package it.auties.named.worker;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Reads the work requests and writes the work responses of Bazel's persistent worker protocol, in its JSON form
+// Requests are JSON objects read one after the other, responses are written as one JSON object per line
+// Only the fields used by the worker are read, the others, like the digests of the inputs, are skipped
+final class WorkProtocol {
+    private final Reader input;
+    private final Writer output;
+    private int peeked;
+
+    WorkProtocol(InputStream input, OutputStream output) {
+        this.input = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.output = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        this.peeked = -1;
+    }
+
+    // Reads the next request, or returns an empty optional if the input was closed
+    Optional<Request> read() throws IOException {
+        if(skipWhitespace() == -1){
+            return Optional.empty();
+        }
+
+        if(!(readValue() instanceof Map<?, ?> message)){
+            throw new IOException("Malformed work request: expected an object");
+        }
+
+        var arguments = new ArrayList<String>();
+        if(message.get("arguments") instanceof List<?> values){
+            values.forEach(value -> arguments.add(String.valueOf(value)));
+        }
+
+        return Optional.of(new Request(arguments, toInt(message.get("requestId")), toInt(message.get("verbosity")), Boolean.TRUE.equals(message.get("cancel"))));
+    }
+
+    // Writes a response and flushes it, as the client waits for it before sending the next request
+    void write(Response response) throws IOException {
+        output.write("{\"exitCode\":%s,\"output\":%s,\"requestId\":%s}\n".formatted(response.exitCode(), quote(response.output()), response.requestId()));
+        output.flush();
+    }
+
+    // Proto3 fields with their default value may be omitted, and 64 bit values may be strings
+    private static int toInt(Object value) {
+        if(value instanceof Number number){
+            return number.intValue();
+        }
+
+        if(value instanceof String string){
+            return Integer.parseInt(string);
+        }
+
+        return 0;
+    }
+
+    private Object readValue() throws IOException {
+        var next = skipWhitespace();
+        switch (next) {
+            case '{' -> {
+                return readObject();
+            }
+            case '[' -> {
+                return readArray();
+            }
+            case '"' -> {
+                return readString();
+            }
+            case 't' -> {
+                readKeyword("true");
+                return true;
+            }
+            case 'f' -> {
+                readKeyword("false");
+                return false;
+            }
+            case 'n' -> {
+                readKeyword("null");
+                return null;
+            }
+            case -1 -> throw new EOFException("Truncated work request");
+            default -> {
+                if(next == '-' || (next >= '0' && next <= '9')){
+                    return readNumber();
+                }
+
+                throw new IOException("Malformed work request: unexpected character %s".formatted((char) next));
+            }
+        }
+    }
+
+    private Map<String, Object> readObject() throws IOException {
+        expect('{');
+        var results = new LinkedHashMap<String, Object>();
+        if(skipWhitespace() == '}'){
+            readChar();
+            return results;
+        }
+
+        while (true) {
+            skipWhitespace();
+            var key = readString();
+            skipWhitespace();
+            expect(':');
+            results.put(key, readValue());
+            if(skipWhitespace() == ','){
+                readChar();
+                continue;
+            }
+
+            expect('}');
+            return results;
+        }
+    }
+
+    private List<Object> readArray() throws IOException {
+        expect('[');
+        var results = new ArrayList<>();
+        if(skipWhitespace() == ']'){
+            readChar();
+            return results;
+        }
+
+        while (true) {
+            results.add(readValue());
+            if(skipWhitespace() == ','){
+                readChar();
+                continue;
+            }
+
+            expect(']');
+            return results;
+        }
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        var result = new StringBuilder();
+        while (true) {
+            var next = readChar();
+            switch (next) {
+                case '"' -> {
+                    return result.toString();
+                }
+                case '\\' -> {
+                    var escaped = readChar();
+                    switch (escaped) {
+                        case 'b' -> result.append('\b');
+                        case 'f' -> result.append('\f');
+                        case 'n' -> result.append('\n');
+                        case 'r' -> result.append('\r');
+                        case 't' -> result.append('\t');
+                        case 'u' -> {
+                            var code = new char[4];
+                            for(var index = 0; index < code.length; index++){
+                                code[index] = (char) readChar();
+                            }
+
+                            result.append((char) Integer.parseInt(new String(code), 16));
+                        }
+                        default -> result.append((char) escaped);
+                    }
+                }
+                default -> result.append((char) next);
+            }
+        }
+    }
+
+    private Number readNumber() throws IOException {
+        var result = new StringBuilder();
+        var next = skipWhitespace();
+        while (next == '-' || next == '+' || next == '.' || next == 'e' || next == 'E' || (next >= '0' && next <= '9')) {
+            result.append((char) readChar());
+            next = peekChar();
+        }
+
+        var text = result.toString();
+        try {
+            return text.contains(".") || text.contains("e") || text.contains("E") ? Double.parseDouble(text) : Long.parseLong(text);
+        }catch (NumberFormatException exception){
+            throw new IOException("Malformed work request: invalid number %s".formatted(text), exception);
+        }
+    }
+
+    private void readKeyword(String keyword) throws IOException {
+        for(var index = 0; index < keyword.length(); index++){
+            expect(keyword.charAt(index));
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        var next = readChar();
+        if(next != expected){
+            throw new IOException("Malformed work request: expected %s, got %s".formatted(expected, next == -1 ? "the end of the input" : (char) next));
+        }
+    }
+
+    // Skips the whitespace and returns the next character without consuming it
+    private int skipWhitespace() throws IOException {
+        var next = peekChar();
+        while (next != -1 && Character.isWhitespace(next)) {
+            readChar();
+            next = peekChar();
+        }
+
+        return next;
+    }
+
+    private int peekChar() throws IOException {
+        if(peeked == -1){
+            peeked = input.read();
+        }
+
+        return peeked;
+    }
+
+    private int readChar() throws IOException {
+        var result = peekChar();
+        if(result == -1){
+            throw new EOFException("Truncated work request");
+        }
+
+        peeked = -1;
+        return result;
+    }
+
+    private static String quote(String value) {
+        var result = new StringBuilder(value.length() + 2);
+        result.append('"');
+        for(var index = 0; index < value.length(); index++){
+            var character = value.charAt(index);
+            switch (character) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                case '\t' -> result.append("\\t");
+                default -> {
+                    if(character < 0x20){
+                        result.append("\\u%04x".formatted((int) character));
+                    }else {
+                        result.append(character);
+                    }
+                }
+            }
+        }
+
+        return result.append('"').toString();
+    }
+
+    // A compilation requested by the client
+    // The verbosity is greater than zero when Bazel runs with --worker_verbose
+    record Request(List<String> arguments, int requestId, int verbosity, boolean cancel) {
+
+    }
+
+    // The result of a compilation, the output contains the diagnostics printed by javac
+    record Response(int exitCode, String output, int requestId) {
+
+    }
+}
@@ -1,4 +1,8 @@
 module it.auties.named {
     requires jdk.compiler;
     requires jdk.unsupported;
+    requires jdk.jfr;
+    requires jdk.management;
+
+    exports it.auties.named.runtime;
 }
\ No newline at end of file